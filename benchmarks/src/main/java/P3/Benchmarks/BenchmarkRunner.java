@@ -0,0 +1,36 @@
+package P3.Benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of benchmarks.jar. Takes the usual JMH options and always adds the GC profiler,
+ * so every result comes with its allocation rate (gc.alloc.rate, in MB/s, and gc.alloc.rate.norm, in bytes per operation).
+ *
+ *   java -jar benchmarks/target/benchmarks.jar                                 every benchmark
+ *   java -jar benchmarks/target/benchmarks.jar EncodeBenchmark -p size=1048576  one class, one input size
+ *   java -jar benchmarks/target/benchmarks.jar -l                              list the benchmarks
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldList() || options.shouldHelp() || options.shouldListProfilers() || options.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+		/* Unless "-prof gc" was already given, with its own options */
+		if (options.getProfilers().stream().noneMatch(profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())))
+			builder.addProfiler(GCProfiler.class);
+		new Runner(builder.build()).run();
+	}
+
+}
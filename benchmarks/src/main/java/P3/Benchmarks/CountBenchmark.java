@@ -0,0 +1,64 @@
+package P3.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Map.Map;
+import P3.Main.HuffmanCoding;
+
+/**
+ * The counting stage: compute_fd() and the histograms that replace it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountBenchmark {
+
+	@Param({ "1024", "65536", "1048576", "16777216" })
+	public int size;
+	@Param({ "16", "256", "4096" })
+	public int alphabet;
+	@Param({ "0.25", "0.75", "1.0" })
+	public double entropy;
+
+	private String input;
+
+	@Setup
+	public void setup() {
+		input = Inputs.text(size, alphabet, entropy);
+	}
+
+	@Benchmark
+	public Map<String, Integer> compute_fd(Throughput throughput) {
+		throughput.processed(size);
+		return HuffmanCoding.compute_fd(input);
+	}
+
+	@Benchmark
+	public Histogram compute_histogram(Throughput throughput) {
+		throughput.processed(size);
+		return HuffmanCoding.compute_histogram(input);
+	}
+
+	@Benchmark
+	public Histogram compute_histogram_parallel(Throughput throughput) {
+		throughput.processed(size);
+		return HuffmanCoding.compute_histogram_parallel(input);
+	}
+
+}
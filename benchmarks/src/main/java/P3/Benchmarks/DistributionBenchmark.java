@@ -0,0 +1,98 @@
+package P3.Benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Histogram.SparseHistogram;
+import P3.Huffman.CanonicalCode;
+import P3.Huffman.CorpusGenerator;
+import P3.Huffman.CorpusGenerator.Distribution;
+import P3.Huffman.HuffmanStream;
+import P3.Main.HuffmanCoding;
+
+/**
+ * Every CorpusGenerator distribution through HuffmanStream, and code building for alphabets far larger than a byte.
+ * FIBONACCI counts make the deepest trees, so they go through the length limiter on every block.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DistributionBenchmark {
+
+	/* FIBONACCI alphabets are kept small enough that a period fits a block */
+	private static final int FIBONACCI_ALPHABET = 28;
+
+	@Param({ "1048576", "67108864" })
+	public int size;
+	@Param({ "UNIFORM", "ZIPF", "GEOMETRIC", "SINGLE_SYMBOL", "FIBONACCI" })
+	public Distribution distribution;
+
+	private byte[] input;
+	private byte[] compressed;
+
+	@Setup
+	public void setup() throws IOException {
+		input = new CorpusGenerator(distribution, distribution == Distribution.FIBONACCI ? FIBONACCI_ALPHABET : 256, Inputs.SEED).bytes(size);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size / 2);
+		HuffmanStream.compress(new ByteArrayInputStream(input), out);
+		compressed = out.toByteArray();
+	}
+
+	@Benchmark
+	public long compress(Throughput throughput, StreamBenchmark.Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.compress(new ByteArrayInputStream(input), output.reset());
+	}
+
+	@Benchmark
+	public long decompress(Throughput throughput, StreamBenchmark.Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.decompress(new ByteArrayInputStream(compressed), output.reset());
+	}
+
+	/**
+	 * Tree and canonical code for 2^16 and 2^20 symbol alphabets, where every table is far larger than the cache.
+	 * Not length limited: HuffmanStream.MAX_CODE_LENGTH bits can't hold that many symbols.
+	 */
+	@State(Scope.Benchmark)
+	public static class LargeAlphabet {
+		@Param({ "65536", "1048576" })
+		public int alphabet;
+
+		private Histogram histogram;
+
+		@Setup
+		public void setup(DistributionBenchmark benchmark) {
+			/* FIBONACCI alphabets can't be this large */
+			Distribution distribution = benchmark.distribution == Distribution.FIBONACCI ? Distribution.ZIPF : benchmark.distribution;
+			CorpusGenerator generator = new CorpusGenerator(distribution, alphabet, Inputs.SEED);
+			histogram = new SparseHistogram();
+			for (int i = 0; i < benchmark.size; i++)
+				histogram.increment(generator.nextSymbol());
+		}
+	}
+
+	@Benchmark
+	public CanonicalCode large_alphabet_code(LargeAlphabet state) {
+		return CanonicalCode.fromTree(HuffmanCoding.huffman_flat_tree(state.histogram));
+	}
+
+}
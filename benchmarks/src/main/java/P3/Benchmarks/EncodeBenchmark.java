@@ -0,0 +1,107 @@
+package P3.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Tree.BTNode;
+import P3.Huffman.BitWriter;
+import P3.Huffman.EncodingTable;
+import P3.Huffman.HuffmanDecoder;
+import P3.Main.HuffmanCoding;
+
+/**
+ * The encode() stage and its inverse, with the code already built. Throughput is over the original text in both directions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+
+	@Param({ "1024", "65536", "1048576", "16777216" })
+	public int size;
+	@Param({ "16", "256", "4096" })
+	public int alphabet;
+	@Param({ "0.25", "0.75", "1.0" })
+	public double entropy;
+
+	private String input;
+	private Map<String, String> encodingMap;
+	private EncodingTable table;
+	private HuffmanDecoder decoder;
+	private byte[] encoded;
+	private long bitLength;
+
+	@Setup
+	public void setup() {
+		input = Inputs.text(size, alphabet, entropy);
+		BTNode<Integer, String> root = HuffmanCoding.huffman_tree(HuffmanCoding.compute_fd(input));
+		encodingMap = HuffmanCoding.huffman_code(root);
+		table = HuffmanCoding.huffman_code_table(root);
+		decoder = table.newDecoder();
+		BitWriter out = new BitWriter();
+		bitLength = HuffmanCoding.encode(table, input, out);
+		encoded = out.toByteArray();
+	}
+
+	/**
+	 * The original encode(), one '0' or '1' char per bit
+	 */
+	@Benchmark
+	public String encode(Throughput throughput) {
+		throughput.processed(size);
+		return HuffmanCoding.encode(encodingMap, input);
+	}
+
+	@Benchmark
+	public long encode_map_packed(Throughput throughput, Writer writer) {
+		throughput.processed(size);
+		return HuffmanCoding.encode(encodingMap, input, writer.reset());
+	}
+
+	@Benchmark
+	public long encode_table(Throughput throughput, Writer writer) {
+		throughput.processed(size);
+		return HuffmanCoding.encode(table, input, writer.reset());
+	}
+
+	@Benchmark
+	public long encode_parallel(Throughput throughput, Writer writer) {
+		throughput.processed(size);
+		return HuffmanCoding.encode_parallel(table, input, writer.reset());
+	}
+
+	@Benchmark
+	public String decode(Throughput throughput) {
+		throughput.processed(size);
+		return decoder.decode(encoded, bitLength);
+	}
+
+	/**
+	 * A BitWriter per thread, emptied before every operation so its buffer is only grown during warmup
+	 */
+	@State(Scope.Thread)
+	public static class Writer {
+		private final BitWriter out = new BitWriter();
+
+		BitWriter reset() {
+			out.reset();
+			return out;
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package P3.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Tree.BTNode;
+import P3.Huffman.BitWriter;
+import P3.Huffman.CanonicalCode;
+import P3.Huffman.HuffmanStream;
+import P3.Main.HuffmanCoding;
+
+/**
+ * Every stage of HuffmanCoding in a row, from the loaded string to the encoded message.
+ * Loading is left out so disk speed doesn't hide the rest (see StreamBenchmark for whole streams of bytes).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+	@Param({ "1024", "65536", "1048576", "16777216" })
+	public int size;
+	@Param({ "16", "256", "4096" })
+	public int alphabet;
+	@Param({ "0.25", "0.75", "1.0" })
+	public double entropy;
+
+	private String input;
+
+	@Setup
+	public void setup() {
+		input = Inputs.text(size, alphabet, entropy);
+	}
+
+	/**
+	 * The pipeline of main(): compute_fd(), huffman_tree(), huffman_code() and encode() into a String of bits
+	 */
+	@Benchmark
+	public String original(Throughput throughput) {
+		throughput.processed(size);
+		Map<String, Integer> fD = HuffmanCoding.compute_fd(input);
+		BTNode<Integer, String> root = HuffmanCoding.huffman_tree(fD);
+		Map<String, String> encodingMap = HuffmanCoding.huffman_code(root);
+		return HuffmanCoding.encode(encodingMap, input);
+	}
+
+	/**
+	 * Histogram, tree, encoding table and packed bits
+	 */
+	@Benchmark
+	public BitWriter packed(Throughput throughput) {
+		throughput.processed(size);
+		Histogram histogram = HuffmanCoding.compute_histogram(input);
+		BTNode<Integer, String> root = HuffmanCoding.huffman_tree(histogram);
+		BitWriter out = new BitWriter(size / 2);
+		HuffmanCoding.encode(HuffmanCoding.huffman_code_table(root), input, out);
+		return out;
+	}
+
+	/**
+	 * Histogram, flat tree, length limited canonical code with its header, and packed bits
+	 */
+	@Benchmark
+	public BitWriter canonical(Throughput throughput) {
+		throughput.processed(size);
+		Histogram histogram = HuffmanCoding.compute_histogram(input);
+		CanonicalCode code = CanonicalCode.fromTree(HuffmanCoding.huffman_flat_tree(histogram), HuffmanStream.MAX_CODE_LENGTH);
+		BitWriter out = new BitWriter(size / 2);
+		code.writeHeader(out);
+		HuffmanCoding.encode(code.getEncodingTable(), input, out);
+		return out;
+	}
+
+}
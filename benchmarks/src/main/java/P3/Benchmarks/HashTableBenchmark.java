@@ -0,0 +1,101 @@
+package P3.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import P3.DataStructures.List.List;
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Map.HashTable.HashFunction;
+import P3.DataStructures.Map.HashTable.HashTableOA;
+import P3.DataStructures.Map.HashTable.HashTableSC;
+import P3.DataStructures.Map.HashTable.PolynomialHashFunction;
+import P3.DataStructures.Map.HashTable.SimpleHashFunction;
+
+/**
+ * Hash table operations, each one over every key, so an operation is a pass of "keys" lookups or insertions.
+ *
+ * "SC" is HashTableSC (separate chaining), "OA" is HashTableOA (open addressing).
+ * "chars" are the one char keys and SimpleHashFunction of compute_fd() and huffman_code(),
+ * "words" the longer keys and PolynomialHashFunction of TokenAlphabet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashTableBenchmark {
+
+	@Param({ "16", "256", "4096", "65536" })
+	public int keys;
+	@Param({ "chars", "words" })
+	public String kind;
+	@Param({ "SC", "OA" })
+	public String table;
+
+	private String[] keySet;
+	private HashFunction<String> hashFunction;
+	private Map<String, Integer> map;
+
+	@Setup
+	public void setup() {
+		keySet = new String[keys];
+		for (int i = 0; i < keys; i++)
+			keySet[i] = kind.equals("chars") ? String.valueOf((char) i) : "token" + i;
+		hashFunction = kind.equals("chars") ? new SimpleHashFunction<String>() : new PolynomialHashFunction<String>();
+		map = fill();
+	}
+
+	@Benchmark
+	public Map<String, Integer> put() {
+		return fill();
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (String key : keySet)
+			blackhole.consume(map.get(key));
+	}
+
+	/**
+	 * Counting a key with merge(), like TokenAlphabet does for every token: a get() and a put() on HashTableSC, one lookup on HashTableOA
+	 */
+	@Benchmark
+	public Map<String, Integer> increment() {
+		for (String key : keySet)
+			map.merge(key, 1, Integer::sum);
+		return map;
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		List<String> keyList = map.getKeys();
+		List<Integer> values = map.getValues();
+		for (String key : keyList)
+			blackhole.consume(key);
+		for (Integer value : values)
+			blackhole.consume(value);
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private Map<String, Integer> fill() {
+		Map<String, Integer> result = table.equals("OA") ? new HashTableOA<String, Integer>(hashFunction) : new HashTableSC<String, Integer>(hashFunction);
+		for (int i = 0; i < keySet.length; i++)
+			result.put(keySet[i], i);
+		return result;
+	}
+
+}
@@ -0,0 +1,62 @@
+package P3.Benchmarks;
+
+import P3.Huffman.CorpusGenerator;
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * Inputs with a given size, alphabet size and entropy, the same for every run.
+ *
+ * They come from a GEOMETRIC CorpusGenerator: symbol i gets a probability proportional to r^i. With r = 1 every symbol
+ * is equally likely, the highest entropy the alphabet allows (log2 of its size); smaller ratios skew the distribution
+ * towards the first symbols. The ratio is searched so the entropy is the requested fraction of that maximum.
+ */
+final class Inputs {
+
+	/** Every benchmark draws its input with this seed, so runs compare the same data */
+	static final long SEED = 0x5EED;
+
+	private Inputs() {
+	}
+
+	/**
+	 * @param length number of chars
+	 * @param alphabet number of different chars that may appear
+	 * @param entropy fraction of log2(alphabet), above 0 and up to 1
+	 * @return the text
+	 */
+	static String text(int length, int alphabet, double entropy) {
+		return generator(alphabet, entropy).text(length);
+	}
+
+	/**
+	 * @param length number of bytes
+	 * @param alphabet number of different byte values that may appear, up to 256
+	 * @param entropy fraction of log2(alphabet), above 0 and up to 1
+	 * @return the bytes
+	 */
+	static byte[] bytes(int length, int alphabet, double entropy) {
+		return generator(alphabet, entropy).bytes(length);
+	}
+
+	/**
+	 * @return generator whose entropy is the given fraction of log2(alphabet)
+	 */
+	static CorpusGenerator generator(int alphabet, double entropy) {
+		if (alphabet < 2)
+			throw new IllegalArgumentException("Alphabet needs at least two symbols.");
+		if (!(entropy > 0 && entropy <= 1))
+			throw new IllegalArgumentException("Entropy must be above 0 and at most 1.");
+		double target = entropy * Math.log(alphabet) / Math.log(2);
+		/* Entropy grows with the ratio, so bisect it */
+		double low = 0, high = 1;
+		for (int i = 0; i < 64 && entropy < 1; i++) {
+			double mid = (low + high) / 2;
+			if (new CorpusGenerator(Distribution.GEOMETRIC, alphabet, mid, SEED).entropy() < target)
+				low = mid;
+			else
+				high = mid;
+		}
+		return new CorpusGenerator(Distribution.GEOMETRIC, alphabet, high, SEED);
+	}
+
+}
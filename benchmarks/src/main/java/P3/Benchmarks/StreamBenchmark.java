@@ -0,0 +1,107 @@
+package P3.Benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.Huffman.ContainerWriter;
+import P3.Huffman.HuffmanStream;
+
+/**
+ * Whole streams of bytes through HuffmanStream and ContainerWriter, from 1 KB up to 1 GB.
+ * Input and output stay in memory; the 1 GB runs need the larger heap given to the fork.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class StreamBenchmark {
+
+	@Param({ "1024", "1048576", "67108864", "1073741824" })
+	public int size;
+	@Param({ "16", "256" })
+	public int alphabet;
+	@Param({ "0.25", "0.75", "1.0" })
+	public double entropy;
+
+	private byte[] input;
+	private byte[] compressed;
+	private byte[] compressedInterleaved;
+
+	@Setup
+	public void setup() throws IOException {
+		input = Inputs.bytes(size, alphabet, entropy);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size / 2);
+		HuffmanStream.compress(new ByteArrayInputStream(input), out);
+		compressed = out.toByteArray();
+		out.reset();
+		HuffmanStream.compress(new ByteArrayInputStream(input), out, HuffmanStream.DEFAULT_BLOCK_SIZE, HuffmanStream.FLAG_INTERLEAVED);
+		compressedInterleaved = out.toByteArray();
+	}
+
+	@Benchmark
+	public long compress(Throughput throughput, Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.compress(new ByteArrayInputStream(input), output.reset());
+	}
+
+	@Benchmark
+	public long compress_interleaved(Throughput throughput, Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.compress(new ByteArrayInputStream(input), output.reset(),
+				HuffmanStream.DEFAULT_BLOCK_SIZE, HuffmanStream.FLAG_INTERLEAVED);
+	}
+
+	@Benchmark
+	public long decompress(Throughput throughput, Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.decompress(new ByteArrayInputStream(compressed), output.reset());
+	}
+
+	/**
+	 * Same data as decompress(), written as 4 interleaved streams per block (see InterleavedCodec)
+	 */
+	@Benchmark
+	public long decompress_interleaved(Throughput throughput, Output output) throws IOException {
+		throughput.processed(size);
+		return HuffmanStream.decompress(new ByteArrayInputStream(compressedInterleaved), output.reset());
+	}
+
+	@Benchmark
+	public long container(Throughput throughput, Output output) throws IOException {
+		throughput.processed(size);
+		ContainerWriter writer = new ContainerWriter(output.reset());
+		writer.write(input, 0, input.length);
+		writer.close();
+		return writer.compressedSize();
+	}
+
+	/**
+	 * An in memory destination per thread, emptied before every operation so its buffer is only grown during warmup
+	 */
+	@State(Scope.Thread)
+	public static class Output {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		ByteArrayOutputStream reset() {
+			out.reset();
+			return out;
+		}
+	}
+
+}
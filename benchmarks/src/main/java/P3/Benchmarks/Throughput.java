@@ -0,0 +1,29 @@
+package P3.Benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Input processed by a benchmark, which JMH divides by the measured time: the "megabytes" line of the results is MB/s.
+ *
+ * A char of a text counts as one byte, like in the files load_data() reads.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+	public double megabytes;
+
+	@Setup(Level.Iteration)
+	public void clear() {
+		megabytes = 0;
+	}
+
+	void processed(long bytes) {
+		megabytes += bytes / 1e6;
+	}
+
+}
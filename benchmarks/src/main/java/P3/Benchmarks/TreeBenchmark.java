@@ -0,0 +1,100 @@
+package P3.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Tree.BTNode;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Huffman.CanonicalCode;
+import P3.Huffman.EncodingTable;
+import P3.Huffman.HuffmanStream;
+import P3.Huffman.TreeBuilder;
+import P3.Main.HuffmanCoding;
+
+/**
+ * The huffman_tree() and huffman_code() stages. They only depend on the frequencies, not on the input size,
+ * so every run counts the same 1 MB input and reports operations (trees or codes built) per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+
+	private static final int INPUT_SIZE = 1 << 20;
+
+	@Param({ "16", "256", "4096" })
+	public int alphabet;
+	@Param({ "0.25", "0.75", "1.0" })
+	public double entropy;
+
+	private Map<String, Integer> fD;
+	private Histogram histogram;
+	private BTNode<Integer, String> root;
+	private FlatHuffmanTree flatTree;
+
+	@Setup
+	public void setup() {
+		String input = Inputs.text(INPUT_SIZE, alphabet, entropy);
+		fD = HuffmanCoding.compute_fd(input);
+		histogram = HuffmanCoding.compute_histogram(input);
+		root = HuffmanCoding.huffman_tree(histogram);
+		flatTree = HuffmanCoding.huffman_flat_tree(histogram);
+	}
+
+	@Benchmark
+	public BTNode<Integer, String> huffman_tree() {
+		return HuffmanCoding.huffman_tree(fD);
+	}
+
+	@Benchmark
+	public BTNode<Integer, String> huffman_tree_sorted_list() {
+		return HuffmanCoding.huffman_tree(fD, TreeBuilder.SORTED_LIST);
+	}
+
+	@Benchmark
+	public BTNode<Integer, String> huffman_tree_histogram() {
+		return HuffmanCoding.huffman_tree(histogram);
+	}
+
+	@Benchmark
+	public FlatHuffmanTree huffman_flat_tree() {
+		return HuffmanCoding.huffman_flat_tree(histogram);
+	}
+
+	@Benchmark
+	public Map<String, String> huffman_code() {
+		return HuffmanCoding.huffman_code(root);
+	}
+
+	@Benchmark
+	public EncodingTable huffman_code_table() {
+		return HuffmanCoding.huffman_code_table(root);
+	}
+
+	@Benchmark
+	public CanonicalCode huffman_canonical_code() {
+		return HuffmanCoding.huffman_canonical_code(root);
+	}
+
+	@Benchmark
+	public CanonicalCode canonical_code_length_limited() {
+		return CanonicalCode.fromTree(flatTree, HuffmanStream.MAX_CODE_LENGTH);
+	}
+
+}
@@ -0,0 +1,89 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * Round trips and truncated input for the one pass adaptive (FGK) streams
+ */
+class AdaptiveHuffmanStreamTest {
+
+	@Test
+	void roundTripsEveryShape() throws IOException {
+		for (int length : new int[] { 0, 1, 2, 255, 1000, 100000 }) {
+			assertArrayEquals(new byte[length], roundTrip(new byte[length]));
+			byte[] skewed = new CorpusGenerator(Distribution.ZIPF, 256, length).bytes(length);
+			assertArrayEquals(skewed, roundTrip(skewed));
+			byte[] uniform = new CorpusGenerator(Distribution.UNIFORM, 256, length).bytes(length);
+			assertArrayEquals(uniform, roundTrip(uniform));
+		}
+	}
+
+	@Test
+	void decodesEverythingWrittenBeforeAFlush() throws IOException {
+		byte[] first = "first message".getBytes();
+		byte[] second = "and the second one".getBytes();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed);
+		out.write(first);
+		out.flush();
+		byte[] flushed = compressed.toByteArray();
+
+		/* What was flushed decodes on its own */
+		InputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(flushed));
+		byte[] read = new byte[first.length];
+		assertEquals(first.length, in.readNBytes(read, 0, read.length));
+		assertArrayEquals(first, read);
+
+		out.write(second);
+		out.close();
+		/* and later writes only append to it */
+		assertArrayEquals(flushed, Arrays.copyOf(compressed.toByteArray(), flushed.length));
+		in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		byte[] both = in.readAllBytes();
+		assertEquals(first.length + second.length, both.length);
+		assertArrayEquals(second, Arrays.copyOfRange(both, first.length, both.length));
+	}
+
+	@Test
+	void rejectsTruncatedStreams() throws IOException {
+		byte[] data = new CorpusGenerator(Distribution.ZIPF, 256, 3).bytes(5000);
+		byte[] compressed = compress(data);
+		for (int length : new int[] { 0, 1, compressed.length / 2, compressed.length - 1 }) {
+			InputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(Arrays.copyOf(compressed, length)));
+			assertThrows(EOFException.class, in::readAllBytes);
+		}
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static byte[] roundTrip(byte[] data) throws IOException {
+		try (InputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(compress(data)))) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static byte[] compress(byte[] data) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed)) {
+			/* Both write() methods */
+			out.write(data, 0, data.length / 2);
+			for (int i = data.length / 2; i < data.length; i++)
+				out.write(data[i]);
+		}
+		return compressed.toByteArray();
+	}
+
+}
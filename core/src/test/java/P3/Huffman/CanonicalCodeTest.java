@@ -0,0 +1,91 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import P3.DataStructures.Histogram.SparseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * The code length header: round trips for dense and sparse alphabets, and corrupt headers
+ */
+class CanonicalCodeTest {
+
+	@Test
+	void headerRoundTripsDenseCodes() {
+		CanonicalCode code = CanonicalCode.fromTree(FlatHuffmanTree.build(
+				SymbolMode.BYTES.count(new CorpusGenerator(Distribution.ZIPF, 256, 1).text(10000))), HuffmanStream.MAX_CODE_LENGTH);
+		assertSameCode(code, roundTrip(code), 256);
+	}
+
+	@Test
+	void headerRoundTripsSparseCodes() {
+		/* A few code points spread up to the top of Unicode */
+		SparseHistogram histogram = new SparseHistogram();
+		int[] symbols = { 'a', 'b', 0x1F600, 0x10FFFF };
+		for (int i = 0; i < symbols.length; i++)
+			histogram.add(symbols[i], 1L << i);
+		CanonicalCode code = CanonicalCode.fromTree(FlatHuffmanTree.build(histogram));
+		CanonicalCode read = roundTrip(code);
+		assertEquals(symbols.length, read.getSymbolCount());
+		for (int symbol : symbols) {
+			assertEquals(code.getLength(symbol), read.getLength(symbol));
+			assertEquals(code.getCode(symbol), read.getCode(symbol));
+		}
+	}
+
+	@Test
+	void rejectsCodesLongerThanTheDecoderHandles() {
+		byte[] lengths = new byte[HuffmanDecoder.MAX_CODE_LENGTH + 1];
+		for (int s = 0; s < lengths.length; s++)
+			lengths[s] = (byte) Math.min(s + 1, HuffmanDecoder.MAX_CODE_LENGTH);
+		new CanonicalCode(lengths);
+		lengths[lengths.length - 1]++;
+		lengths[lengths.length - 2]++;
+		assertThrows(IllegalArgumentException.class, () -> new CanonicalCode(lengths));
+	}
+
+	@Test
+	void rejectsCorruptHeaders() {
+		/* 31 leading zeros: a gamma code too large for an int */
+		assertThrows(IllegalArgumentException.class, () -> CanonicalCode.readHeader(new BitReader(new byte[] { 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 })));
+		/* Nothing but zeros: the gamma code never ends */
+		assertThrows(IllegalArgumentException.class, () -> CanonicalCode.readHeader(new BitReader(new byte[16])));
+		/* One symbol whose gap takes it past the largest alphabet: count 1 (bit 1), then a gap of 2^30 */
+		BitWriter gap = new BitWriter();
+		gap.writeBits(1, 1);
+		gap.writeBits(0, 30);
+		gap.writeBits(1L << 30, 31);
+		gap.writeBits(1, 6);
+		assertThrows(IllegalArgumentException.class, () -> CanonicalCode.readHeader(new BitReader(gap.toByteArray())));
+		/* Three codes of length 1: oversubscribed */
+		BitWriter oversubscribed = new BitWriter();
+		oversubscribed.writeBits(0b011, 3);
+		for (int i = 0; i < 3; i++) {
+			oversubscribed.writeBits(1, 1);
+			oversubscribed.writeBits(1, 6);
+		}
+		assertThrows(IllegalArgumentException.class, () -> CanonicalCode.readHeader(new BitReader(oversubscribed.toByteArray())));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static CanonicalCode roundTrip(CanonicalCode code) {
+		BitWriter header = new BitWriter();
+		code.writeHeader(header);
+		return CanonicalCode.readHeader(new BitReader(header.toByteArray()));
+	}
+
+	private static void assertSameCode(CanonicalCode expected, CanonicalCode actual, int alphabetSize) {
+		assertEquals(expected.getSymbolCount(), actual.getSymbolCount());
+		for (int s = 0; s < alphabetSize; s++) {
+			assertEquals(expected.getLength(s), actual.getLength(s));
+			if (expected.getLength(s) > 0)
+				assertEquals(expected.getCode(s), actual.getCode(s));
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Histogram.SparseHistogram;
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * Messages drawn from one distribution share cached codes, and a code that fits a message badly is not reused
+ */
+class CodeTableCacheTest {
+
+	private static final int MESSAGES = 2000;
+
+	@ParameterizedTest
+	@CsvSource({ "ZIPF, 100", "ZIPF, 1000", "GEOMETRIC, 100", "GEOMETRIC, 1000", "UNIFORM, 100", "UNIFORM, 1000" })
+	void hitsOnMessagesFromOneDistribution(Distribution distribution, int length) {
+		CodeTableCache cache = new CodeTableCache();
+		CorpusGenerator generator = new CorpusGenerator(distribution, 256, 7);
+		for (int i = 0; i < MESSAGES; i++) {
+			Histogram histogram = bytes(generator.bytes(length));
+			CanonicalCode code = cache.get(histogram).getCode();
+			for (int symbol : histogram.symbols())
+				assertTrue(code.getLength(symbol) > 0);
+		}
+		assertEquals(MESSAGES, cache.getHits() + cache.getMisses());
+		assertTrue(cache.getHits() > 0.9 * MESSAGES, cache.getHits() + " hits");
+	}
+
+	@Test
+	void reusesCodesForRareSymbolsOfTheAlphabet() {
+		CodeTableCache cache = new CodeTableCache();
+		CodeTableCache.Tables tables = cache.get(counts(new int[] { 'a', 'b', 'c', 'd' }, 100, 50, 30, 20));
+		/* 'z' and 0xFF never appeared, but the floor gave them a code */
+		assertSame(tables, cache.get(counts(new int[] { 'a', 'b', 'c', 'd', 'z', 0xFF }, 100, 50, 30, 20, 1, 1)));
+		assertEquals(1, cache.getHits());
+		/* A symbol above the alphabet has no code, so the cached one is rejected and the new one covers it */
+		Histogram wide = counts(new int[] { 'a', 'b', 'c', 'd', 300 }, 100, 50, 30, 20, 1);
+		CodeTableCache.Tables rebuilt = cache.get(wide);
+		assertNotSame(tables, rebuilt);
+		assertTrue(rebuilt.getCode().getLength(300) > 0);
+		assertEquals(1, cache.getRejections());
+		assertSame(rebuilt, cache.get(wide));
+	}
+
+	@Test
+	void rejectsCodesThatFitBadly() {
+		CodeTableCache cache = new CodeTableCache();
+		int[] top = { 0, 1, 2, 3 };
+		Histogram narrow = counts(top, 1000, 1000, 1000, 1000);
+		/* Same most frequent symbols, but most of the message is spread over a hundred rare ones */
+		SparseHistogram spread = new SparseHistogram();
+		for (int symbol : top)
+			spread.add(symbol, 100);
+		for (int symbol = 100; symbol < 200; symbol++)
+			spread.add(symbol, 5);
+		assertEquals(CodeTableCache.fingerprint(narrow), CodeTableCache.fingerprint(spread));
+
+		CodeTableCache.Tables tables = cache.get(narrow);
+		assertNotSame(tables, cache.get(spread));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getRejections());
+		assertEquals(1, cache.size());
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static Histogram bytes(byte[] data) {
+		DenseHistogram histogram = new DenseHistogram(256);
+		histogram.countBytes(data, 0, data.length);
+		return histogram;
+	}
+
+	private static Histogram counts(int[] symbols, long... counts) {
+		SparseHistogram histogram = new SparseHistogram();
+		for (int i = 0; i < symbols.length; i++)
+			histogram.add(symbols[i], counts[i]);
+		return histogram;
+	}
+
+}
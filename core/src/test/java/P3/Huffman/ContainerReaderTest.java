@@ -0,0 +1,178 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * Round trips and corrupt input for the "HUFC" container: sequential and parallel decompression, and read(position, ...)
+ * with and without sync points
+ */
+class ContainerReaderTest {
+
+	private static final int BLOCK_SIZE = 4096;
+
+	@TempDir
+	Path folder;
+
+	/* flags, sync interval: a single bit stream, interleaved streams, sync points */
+	@ParameterizedTest
+	@CsvSource({ "0, 0", "1, 0", "0, 64" })
+	void decompressesSequentiallyAndInParallel(int flags, int syncInterval) throws IOException {
+		byte[] data = data(5 * BLOCK_SIZE + 123);
+		Path file = write(data, flags, syncInterval);
+		try (ContainerReader reader = new ContainerReader(file)) {
+			assertEquals(data.length, reader.size());
+			assertEquals(6, reader.blockCount());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(data.length, reader.decompress(out));
+			assertArrayEquals(data, out.toByteArray());
+
+			ForkJoinPool pool = new ForkJoinPool(3);
+			try {
+				out.reset();
+				assertEquals(data.length, reader.decompress(out, pool));
+				assertArrayEquals(data, out.toByteArray());
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@CsvSource({ "0, 0", "1, 0", "0, 64" })
+	void readsAnyRange(int flags, int syncInterval) throws IOException {
+		byte[] data = data(3 * BLOCK_SIZE + 500);
+		try (ContainerReader reader = new ContainerReader(write(data, flags, syncInterval))) {
+			int[][] ranges = { { 0, 1 }, { 0, data.length }, { 100, 64 }, { BLOCK_SIZE - 10, 20 }, { BLOCK_SIZE, BLOCK_SIZE },
+					{ 63, 2 * BLOCK_SIZE + 7 }, { data.length - 1, 1 } };
+			for (int[] range : ranges) {
+				byte[] dest = new byte[range[1] + 2];
+				assertEquals(range[1], reader.read(range[0], dest, 1, range[1]));
+				assertArrayEquals(Arrays.copyOfRange(data, range[0], range[0] + range[1]), Arrays.copyOfRange(dest, 1, range[1] + 1));
+			}
+			/* Past the end reads are cut short, or return -1 */
+			assertEquals(10, reader.read(data.length - 10, new byte[50], 0, 50));
+			assertEquals(-1, reader.read(data.length, new byte[1], 0, 1));
+		}
+	}
+
+	@Test
+	void roundTripsEmptyData() throws IOException {
+		try (ContainerReader reader = new ContainerReader(write(new byte[0], 0, 0))) {
+			assertEquals(0, reader.blockCount());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(0, reader.decompress(out));
+			assertEquals(0, out.size());
+		}
+	}
+
+	@Test
+	void rejectsTruncatedContainers() throws IOException {
+		byte[] file = Files.readAllBytes(write(data(2 * BLOCK_SIZE), 0, 0));
+		for (int length : new int[] { 0, ContainerWriter.HEADER_SIZE, file.length / 2, file.length - 1 }) {
+			Path truncated = folder.resolve("truncated" + length);
+			Files.write(truncated, Arrays.copyOf(file, length));
+			assertThrows(IOException.class, () -> new ContainerReader(truncated).close());
+		}
+	}
+
+	@Test
+	void rejectsBadBlockChecksums() throws IOException {
+		Path file = write(data(2 * BLOCK_SIZE), 0, 0);
+		/* The CRC is the last field of the block header: flags, length, packed length, CRC */
+		corrupt(file, ContainerWriter.HEADER_SIZE + 9);
+		try (ContainerReader reader = new ContainerReader(file)) {
+			IOException e = assertThrows(IOException.class, () -> reader.readBlock(0, new byte[BLOCK_SIZE], 0));
+			assertEquals("Corrupt block 0, checksum mismatch.", e.getMessage());
+			/* The other block is still fine */
+			assertEquals(BLOCK_SIZE, reader.readBlock(1, new byte[BLOCK_SIZE], 0));
+		}
+	}
+
+	@Test
+	void rejectsBadIndexChecksums() throws IOException {
+		Path file = write(data(2 * BLOCK_SIZE), 0, 0);
+		/* The first block offset in the index, right before the entries' count and the footer */
+		corrupt(file, (int) Files.size(file) - ContainerWriter.FOOTER_SIZE - 2 * ContainerWriter.INDEX_ENTRY_SIZE + 7);
+		IOException e = assertThrows(IOException.class, () -> new ContainerReader(file).close());
+		assertEquals("Corrupt index, checksum mismatch.", e.getMessage());
+	}
+
+	@Test
+	void rejectsPackedLengthsPastTheNextBlock() throws IOException {
+		Path file = write(data(2 * BLOCK_SIZE), 0, 0);
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(ContainerWriter.HEADER_SIZE + 5, 0x7FFFFFF0);
+		Files.write(file, bytes);
+		try (ContainerReader reader = new ContainerReader(file)) {
+			assertThrows(IOException.class, () -> reader.readBlock(0, new byte[BLOCK_SIZE], 0));
+			assertThrows(IOException.class, () -> reader.decompress(new ByteArrayOutputStream()));
+		}
+	}
+
+	@Test
+	void rejectsBadBlockSizes() throws IOException {
+		Path file = write(new byte[0], 0, 0);
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(6, -5);
+		Files.write(file, bytes);
+		assertThrows(IOException.class, () -> new ContainerReader(file).close());
+	}
+
+	@Test
+	void rejectsCorruptCodes() throws IOException {
+		Path file = write(data(BLOCK_SIZE), 0, 0);
+		byte[] original = Files.readAllBytes(file);
+		/* Flip a bit in the codes of the only block; whatever it breaks must end in an IOException */
+		for (int i = ContainerWriter.HEADER_SIZE + ContainerWriter.BLOCK_HEADER_SIZE; i < original.length - 60; i += 11) {
+			byte[] bytes = original.clone();
+			bytes[i] ^= 0x04;
+			Files.write(file, bytes);
+			try (ContainerReader reader = new ContainerReader(file)) {
+				assertThrows(IOException.class, () -> reader.readBlock(0, new byte[BLOCK_SIZE], 0));
+			}
+		}
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static byte[] data(int length) {
+		return new CorpusGenerator(Distribution.ZIPF, 200, length).bytes(length);
+	}
+
+	private Path write(byte[] data, int flags, int syncInterval) throws IOException {
+		Path file = Files.createTempFile(folder, "container", ".hufc");
+		try (OutputStream out = Files.newOutputStream(file);
+				ContainerWriter writer = new ContainerWriter(out, BLOCK_SIZE, flags, syncInterval)) {
+			/* Uneven writes, so blocks are filled across several calls */
+			for (int i = 0; i < data.length; i += 1000)
+				writer.write(data, i, Math.min(1000, data.length - i));
+		}
+		return file;
+	}
+
+	private static void corrupt(Path file, int position) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[position] ^= 1;
+		Files.write(file, bytes);
+	}
+
+}
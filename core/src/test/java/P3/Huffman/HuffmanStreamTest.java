@@ -0,0 +1,107 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import P3.Huffman.CorpusGenerator.Distribution;
+
+/**
+ * Round trips and corrupt input for the "HUF2" stream format, with a single bit stream and with 4 interleaved ones
+ */
+class HuffmanStreamTest {
+
+	/* Offset of the CRC of the first block: magic, flags and block size, then the block's length and packed length */
+	private static final int FIRST_CRC = 4 + 1 + 4 + 4 + 4;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, HuffmanStream.FLAG_INTERLEAVED })
+	void roundTripsEveryShape(int flags) throws IOException {
+		for (int length : new int[] { 0, 1, 2, 3, 5, 17, 1000, 4096, 70000 }) {
+			assertRoundTrip(new CorpusGenerator(Distribution.ZIPF, 256, length).bytes(length), 4096, flags);
+			assertRoundTrip(new CorpusGenerator(Distribution.UNIFORM, 256, length).bytes(length), 4096, flags);
+			assertRoundTrip(new CorpusGenerator(Distribution.SINGLE_SYMBOL, 256, length).bytes(length), 4096, flags);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, HuffmanStream.FLAG_INTERLEAVED })
+	void roundTripsCodesAtTheLengthLimit(int flags) throws IOException {
+		/* A Fibonacci alphabet of 24 symbols would be 23 levels deep without the limit */
+		byte[] data = new CorpusGenerator(Distribution.FIBONACCI, 24, 1).bytes(200000);
+		assertRoundTrip(data, 1 << 20, flags);
+	}
+
+	@Test
+	void roundTripsThroughChannels() throws IOException {
+		byte[] data = new CorpusGenerator(Distribution.GEOMETRIC, 64, 3).bytes(300000);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		assertEquals(data.length, HuffmanStream.compress(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(compressed)));
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		HuffmanStream.decompress(Channels.newChannel(new ByteArrayInputStream(compressed.toByteArray())), Channels.newChannel(decompressed));
+		assertArrayEquals(data, decompressed.toByteArray());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, HuffmanStream.FLAG_INTERLEAVED })
+	void rejectsTruncatedStreams(int flags) throws IOException {
+		byte[] compressed = compress(new CorpusGenerator(Distribution.ZIPF, 256, 5).bytes(20000), 4096, flags);
+		for (int length : new int[] { 0, 3, 9, 15, compressed.length / 2, compressed.length - 4, compressed.length - 1 })
+			assertThrows(IOException.class, () -> decompress(Arrays.copyOf(compressed, length)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, HuffmanStream.FLAG_INTERLEAVED })
+	void rejectsBadChecksums(int flags) throws IOException {
+		byte[] compressed = compress(new CorpusGenerator(Distribution.ZIPF, 256, 6).bytes(5000), 4096, flags);
+		compressed[FIRST_CRC] ^= 1;
+		IOException e = assertThrows(IOException.class, () -> decompress(compressed));
+		assertEquals("Corrupt block, checksum mismatch.", e.getMessage());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, HuffmanStream.FLAG_INTERLEAVED })
+	void rejectsCorruptCodes(int flags) throws IOException {
+		byte[] compressed = compress(new CorpusGenerator(Distribution.ZIPF, 256, 7).bytes(5000), 4096, flags);
+		/* Flip a bit of every byte of the packed codes in turn; every case must end in an IOException */
+		for (int i = FIRST_CRC + 4; i < compressed.length - 4; i += 7) {
+			byte[] corrupt = compressed.clone();
+			corrupt[i] ^= 0x10;
+			assertThrows(IOException.class, () -> decompress(corrupt));
+		}
+	}
+
+	@Test
+	void rejectsOtherFormats() {
+		assertThrows(IOException.class, () -> decompress("HUFS plain text".getBytes()));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static void assertRoundTrip(byte[] data, int blockSize, int flags) throws IOException {
+		assertArrayEquals(data, decompress(compress(data, blockSize, flags)));
+	}
+
+	private static byte[] compress(byte[] data, int blockSize, int flags) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(data.length, HuffmanStream.compress(new ByteArrayInputStream(data), out, blockSize, flags));
+		return out.toByteArray();
+	}
+
+	private static byte[] decompress(byte[] compressed) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HuffmanStream.decompress(new ByteArrayInputStream(compressed), out);
+		return out.toByteArray();
+	}
+
+}
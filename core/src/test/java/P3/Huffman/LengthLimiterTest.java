@@ -0,0 +1,101 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+
+/**
+ * Fibonacci counts give the deepest Huffman tree an alphabet can have, the worst case for the length limit
+ */
+class LengthLimiterTest {
+
+	private static final int SYMBOLS = 40;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 6, 8, 11, 15, 20, 38 })
+	void limitsFibonacciCodes(int maxLength) {
+		long[] counts = fibonacci(SYMBOLS);
+		byte[] lengths = huffmanLengths(counts);
+		assertEquals(SYMBOLS - 1, max(lengths));
+		long unlimitedCost = cost(lengths, counts);
+
+		int longest = LengthLimiter.limit(lengths, counts, SYMBOLS, maxLength);
+		assertEquals(max(lengths), longest);
+		assertTrue(longest <= maxLength);
+		for (byte length : lengths)
+			assertTrue(length > 0);
+		/* A complete prefix code: the Kraft sum is exactly 1, so CanonicalCode accepts it and no bit is wasted */
+		long kraft = 0;
+		for (byte length : lengths)
+			kraft += 1L << (maxLength - length);
+		assertEquals(1L << maxLength, kraft);
+		new CanonicalCode(lengths);
+		/* More frequent symbols never get longer codes; symbol 0 is the most frequent */
+		for (int s = 1; s < SYMBOLS; s++)
+			assertTrue(lengths[s] >= lengths[s - 1]);
+		assertTrue(cost(lengths, counts) >= unlimitedCost);
+	}
+
+	@Test
+	void leavesShortCodesAlone() {
+		long[] counts = fibonacci(SYMBOLS);
+		byte[] lengths = huffmanLengths(counts);
+		byte[] limited = lengths.clone();
+		assertEquals(SYMBOLS - 1, LengthLimiter.limit(limited, counts, SYMBOLS, SYMBOLS - 1));
+		assertEquals(cost(lengths, counts), cost(limited, counts));
+	}
+
+	@Test
+	void rejectsLimitsTooShortForTheAlphabet() {
+		long[] counts = fibonacci(SYMBOLS);
+		/* 40 symbols need at least 6 bits */
+		assertThrows(IllegalArgumentException.class, () -> LengthLimiter.limit(huffmanLengths(counts), counts, SYMBOLS, 5));
+		assertThrows(IllegalArgumentException.class, () -> LengthLimiter.limit(huffmanLengths(counts), counts, SYMBOLS, LengthLimiter.MAX_LIMIT + 1));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return F(1), F(2), ... F(n) from the last symbol to the first, so symbol 0 is the most frequent
+	 */
+	private static long[] fibonacci(int n) {
+		long[] counts = new long[n];
+		long a = 1, b = 1;
+		for (int s = n - 1; s >= 0; s--) {
+			counts[s] = a;
+			long next = a + b;
+			a = b;
+			b = next;
+		}
+		return counts;
+	}
+
+	private static byte[] huffmanLengths(long[] counts) {
+		DenseHistogram histogram = new DenseHistogram(counts.length);
+		for (int s = 0; s < counts.length; s++)
+			histogram.add(s, counts[s]);
+		return FlatHuffmanTree.build(histogram).codeLengths(counts.length);
+	}
+
+	private static long cost(byte[] lengths, long[] counts) {
+		long bits = 0;
+		for (int s = 0; s < lengths.length; s++)
+			bits += lengths[s] * counts[s];
+		return bits;
+	}
+
+	private static int max(byte[] lengths) {
+		int max = 0;
+		for (byte length : lengths)
+			max = Math.max(max, length);
+		return max;
+	}
+
+}
@@ -0,0 +1,79 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Static tables: messages round trip, stored tables read back the same, and the built-in table loads
+ */
+class StaticCodeTableTest {
+
+	private static final List<byte[]> SAMPLES = Arrays.asList(
+			bytes("Your order has shipped"), bytes("Your order was delivered"), bytes("Meeting moved to 3pm"));
+
+	@Test
+	void roundTripsMessages() {
+		StaticCodeTable table = StaticCodeTable.train(7, SAMPLES);
+		/* Bytes the samples never had still get a code */
+		for (byte[] message : new byte[][] { new byte[0], bytes("Your order"), bytes("éè \0 ÿ~"), new byte[] { -1, 0, -128 } }) {
+			byte[] packed = table.encode(message);
+			assertEquals(7, packed[0]);
+			assertArrayEquals(message, table.decode(packed));
+		}
+		assertThrows(IllegalArgumentException.class, () -> StaticCodeTable.train(3, SAMPLES).decode(table.encode(bytes("x"))));
+	}
+
+	@Test
+	void rejectsMessagesWithoutEnd() {
+		StaticCodeTable table = StaticCodeTable.train(1, SAMPLES);
+		byte[] packed = table.encode(bytes("Your order has shipped, and was delivered"));
+		assertThrows(IllegalArgumentException.class, () -> table.decode(Arrays.copyOf(packed, packed.length / 2)));
+	}
+
+	@Test
+	void storedTablesReadBackTheSameCode() throws IOException {
+		StaticCodeTable table = StaticCodeTable.train(9, SAMPLES);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.writeTo(out);
+		byte[] stored = out.toByteArray();
+
+		StaticCodeTable read = StaticCodeTable.readFrom(new ByteArrayInputStream(stored));
+		assertEquals(9, read.getId());
+		for (int s = 0; s < StaticCodeTable.ALPHABET_SIZE; s++)
+			assertEquals(table.getCode().getLength(s), read.getCode().getLength(s));
+
+		assertThrows(EOFException.class, () -> StaticCodeTable.readFrom(new ByteArrayInputStream(Arrays.copyOf(stored, stored.length - 1))));
+		byte[] badMagic = stored.clone();
+		badMagic[0] ^= 1;
+		assertThrows(IOException.class, () -> StaticCodeTable.readFrom(new ByteArrayInputStream(badMagic)));
+	}
+
+	@Test
+	void builtInTextTableShrinksProse() throws IOException {
+		StaticTableRegistry registry = StaticTableRegistry.builtIn();
+		byte[] message = bytes("your package will arrive tomorrow between noon and three");
+		byte[] packed = registry.encode(StaticTableRegistry.TEXT, message);
+		assertTrue(packed.length < message.length);
+		assertArrayEquals(message, registry.decode(packed));
+		assertThrows(IllegalArgumentException.class, () -> registry.decode(new byte[] { 100, 0 }));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
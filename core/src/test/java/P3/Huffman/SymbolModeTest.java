@@ -0,0 +1,52 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import P3.DataStructures.Tree.FlatHuffmanTree;
+
+/**
+ * Every symbol mode decodes what it encodes, including supplementary characters, and notices truncated messages
+ */
+class SymbolModeTest {
+
+	/* Accents, CJK, and emoji outside the Basic Multilingual Plane, which are two chars each */
+	private static final String TEXT = "Plain ASCII, accents like éèê, 漢字, and emoji 😀😀 🎉 mixed in. "
+			+ "the quick brown fox jumps over the lazy dog 😀 ";
+	/* Appears once, at the very end, so its code is one of the longest */
+	private static final String LAST = "🦄";
+
+	@ParameterizedTest
+	@EnumSource(SymbolMode.class)
+	void roundTripsText(SymbolMode mode) {
+		for (String text : new String[] { "a", "aaaa", "ab", TEXT.repeat(20) + LAST }) {
+			CanonicalCode code = codeOf(mode, text);
+			BitWriter out = new BitWriter();
+			long bits = mode.encode(code.getEncodingTable(), text, out);
+			assertEquals(bits, out.bitLength());
+			assertEquals(text, mode.decode(code.newDecoder(), out.toByteArray(), bits));
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(SymbolMode.class)
+	void rejectsTruncatedMessages(SymbolMode mode) {
+		String text = TEXT.repeat(20) + LAST;
+		CanonicalCode code = codeOf(mode, text);
+		BitWriter out = new BitWriter();
+		long bits = mode.encode(code.getEncodingTable(), text, out);
+		byte[] data = out.toByteArray();
+		assertThrows(IllegalArgumentException.class, () -> mode.decode(code.newDecoder(), data, bits - 1));
+		assertThrows(IllegalArgumentException.class, () -> mode.decode(code.newDecoder(), data, 8L * data.length + 1));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static CanonicalCode codeOf(SymbolMode mode, String text) {
+		return CanonicalCode.fromTree(FlatHuffmanTree.build(mode.count(text)), HuffmanStream.MAX_CODE_LENGTH);
+	}
+
+}
@@ -0,0 +1,70 @@
+package P3.Huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Huffman.TokenAlphabet.Kind;
+
+/**
+ * Word and bigram alphabets: round trips through the codes and through the stored dictionary
+ */
+class TokenAlphabetTest {
+
+	private static final String TEXT = "the cat sat on the mat, and the dog sat on the cat. "
+			+ "Then the cat ran off -- the end?! ";
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void roundTripsTextWithTokensAndEscapes(Kind kind) {
+		String text = TEXT.repeat(30) + "zyzzyva 😀";  /* The last word is only spelled out */
+		TokenAlphabet alphabet = TokenAlphabet.build(text, kind, 100, 2);
+		assertTrue(alphabet.getTokenCount() > 0);
+
+		CanonicalCode code = CanonicalCode.fromTree(FlatHuffmanTree.build(alphabet.count(text)), HuffmanStream.MAX_CODE_LENGTH);
+		BitWriter out = new BitWriter();
+		long bits = alphabet.encode(code.getEncodingTable(), text, out);
+		assertEquals(text, alphabet.decode(code.newDecoder(), out.toByteArray(), bits));
+		/* Tokens make the message shorter than the same text coded char by char */
+		assertTrue(bits < charBits(text));
+		assertThrows(IllegalArgumentException.class, () -> alphabet.decode(code.newDecoder(), out.toByteArray(), bits - 1));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void storesTheDictionary(Kind kind) throws IOException {
+		TokenAlphabet alphabet = TokenAlphabet.build(TEXT.repeat(5), kind, 10, 2);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		alphabet.writeTo(new DataOutputStream(bytes));
+		byte[] stored = bytes.toByteArray();
+
+		TokenAlphabet read = TokenAlphabet.readFrom(new DataInputStream(new ByteArrayInputStream(stored)));
+		assertEquals(kind, read.getKind());
+		assertArrayEquals(alphabet.toSymbols(TEXT), read.toSymbols(TEXT));
+
+		assertThrows(EOFException.class, () -> TokenAlphabet.readFrom(new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(stored, stored.length - 1)))));
+		stored[0] = 9;  /* No such kind */
+		assertThrows(IOException.class, () -> TokenAlphabet.readFrom(new DataInputStream(new ByteArrayInputStream(stored))));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static long charBits(String text) {
+		CanonicalCode code = CanonicalCode.fromTree(FlatHuffmanTree.build(SymbolMode.CHARS.count(text)), HuffmanStream.MAX_CODE_LENGTH);
+		return SymbolMode.CHARS.encode(code.getEncodingTable(), text, new BitWriter());
+	}
+
+}
@@ -0,0 +1,164 @@
+package P3.DataStructures.Histogram;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Histogram backed by a long[] with one counter per symbol of the alphabet.
+ * 
+ * This is the right choice for small alphabets like bytes (256 symbols) or UTF-16 characters (65536 symbols):
+ * counting a symbol is a single array increment.
+ */
+public class DenseHistogram implements Histogram {
+
+	// private fields
+	private long[] counts;
+	private long total;
+
+	public DenseHistogram(int alphabetSize) {
+		if (alphabetSize < 1)
+			throw new IllegalArgumentException("Alphabet size must be at least 1");
+		counts = new long[alphabetSize];
+	}
+
+	/**
+	 * Counts every character of text[from, to).
+	 * The alphabet must be large enough for every character in that range.
+	 * 
+	 * @param text Characters to count
+	 * @param from First index to count
+	 * @param to   One past the last index to count
+	 */
+	public void countChars(CharSequence text, int from, int to) {
+		long[] c = counts; /* Local copy so the loop doesn't reload the field */
+		for (int i = from; i < to; i++)
+			c[text.charAt(i)]++;
+		total += to - from;
+	}
+
+	/**
+	 * Counts every character of text[from, to).
+	 * 
+	 * @param text Characters to count
+	 * @param from First index to count
+	 * @param to   One past the last index to count
+	 */
+	public void countChars(char[] text, int from, int to) {
+		long[] c = counts;
+		for (int i = from; i < to; i++)
+			c[text[i]]++;
+		total += to - from;
+	}
+
+	/**
+	 * Counts every byte of data[from, to) as an unsigned value from 0 to 255.
+	 * 
+	 * @param data Bytes to count
+	 * @param from First index to count
+	 * @param to   One past the last index to count
+	 */
+	public void countBytes(byte[] data, int from, int to) {
+		long[] c = counts;
+		for (int i = from; i < to; i++)
+			c[data[i] & 0xFF]++;
+		total += to - from;
+	}
+
+	/**
+	 * Counts every remaining byte of the buffer as an unsigned value from 0 to 255.
+	 * The position of the buffer is not changed.
+	 * 
+	 * @param buffer Bytes to count, from its position to its limit
+	 */
+	public void countBytes(ByteBuffer buffer) {
+		long[] c = counts;
+		int to = buffer.limit();
+		for (int i = buffer.position(); i < to; i++)
+			c[buffer.get(i) & 0xFF]++;
+		total += to - buffer.position();
+	}
+
+	@Override
+	public void increment(int symbol) {
+		counts[symbol]++;
+		total++;
+	}
+
+	@Override
+	public void add(int symbol, long count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Count cannot be negative.");
+		counts[symbol] += count;
+		total += count;
+	}
+
+	@Override
+	public long get(int symbol) {
+		return symbol >= 0 && symbol < counts.length ? counts[symbol] : 0;
+	}
+
+	@Override
+	public int distinctSymbols() {
+		int result = 0;
+		for (long count : counts)
+			if (count > 0)
+				result++;
+		return result;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	@Override
+	public int maxSymbol() {
+		for (int s = counts.length - 1; s >= 0; s--)
+			if (counts[s] > 0)
+				return s;
+		return -1;
+	}
+
+	@Override
+	public int[] symbols() {
+		int[] result = new int[distinctSymbols()];
+		int i = 0;
+		for (int s = 0; s < counts.length; s++)
+			if (counts[s] > 0)
+				result[i++] = s;
+		return result;
+	}
+
+	@Override
+	public void merge(Histogram other) {
+		if (other instanceof DenseHistogram && ((DenseHistogram) other).counts.length <= counts.length) {
+			/* Fast path, just add the arrays together */
+			long[] otherCounts = ((DenseHistogram) other).counts;
+			for (int s = 0; s < otherCounts.length; s++)
+				counts[s] += otherCounts[s];
+			total += other.total();
+		} else {
+			for (int s : other.symbols())
+				add(s, other.get(s));
+		}
+	}
+
+	/**
+	 * @return Number of symbols in the alphabet, which is one more than the largest symbol that can be counted
+	 */
+	public int alphabetSize() {
+		return counts.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return total == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int s = 0; s < counts.length; s++)
+			counts[s] = 0;
+		total = 0;
+	}
+
+}
@@ -0,0 +1,61 @@
+package P3.DataStructures.Histogram;
+
+/**
+ * Frequency distribution of integer symbols (bytes, characters or code points).
+ * 
+ * Unlike a Map<String, Integer>, counting a symbol doesn't box it or allocate anything,
+ * it's just an increment of a primitive counter.
+ */
+public interface Histogram {
+
+	/**
+	 * Adds one occurrence of a symbol.
+	 * 
+	 * @param symbol Symbol to count, must be non negative
+	 */
+	void increment(int symbol);
+
+	/**
+	 * Adds several occurrences of a symbol.
+	 * 
+	 * @param symbol Symbol to count, must be non negative
+	 * @param count  How many occurrences to add
+	 */
+	void add(int symbol, long count);
+
+	/**
+	 * @param symbol Symbol to look up
+	 * @return How many times the symbol was counted, 0 if it never was
+	 */
+	long get(int symbol);
+
+	/**
+	 * @return Number of different symbols with a count greater than 0
+	 */
+	int distinctSymbols();
+
+	/**
+	 * @return Sum of the counts of every symbol
+	 */
+	long total();
+
+	/**
+	 * @return The largest symbol with a count greater than 0, or -1 if the histogram is empty
+	 */
+	int maxSymbol();
+
+	/**
+	 * @return Every symbol with a count greater than 0, in increasing order
+	 */
+	int[] symbols();
+
+	/**
+	 * Adds every count of another histogram to this one.
+	 * 
+	 * @param other Histogram to merge into this one
+	 */
+	void merge(Histogram other);
+
+	boolean isEmpty();
+	void clear();
+}
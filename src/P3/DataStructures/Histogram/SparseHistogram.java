@@ -0,0 +1,152 @@
+package P3.DataStructures.Histogram;
+
+import java.util.Arrays;
+
+/**
+ * Histogram for large alphabets where only a few symbols actually appear, like Unicode code points or word ids.
+ * 
+ * The counters live in an open addressing hash table with linear probing:
+ * parallel int[] keys and long[] counts, whose capacity is always a power of two.
+ * Counting a symbol is one hash and (almost always) one probe, without boxing anything.
+ */
+public class SparseHistogram implements Histogram {
+
+	private static final int EMPTY = -1;
+	private static final int DEFAULT_SIZE = 16;
+	private static final double loadFactor = 0.5;
+
+	// private fields
+	private int[] keys;
+	private long[] counts;
+	private int currentSize;
+	private long total;
+	private int maxSymbol = -1;
+
+	public SparseHistogram(int expectedSymbols) {
+		if (expectedSymbols < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		/* Smallest power of two that holds expectedSymbols without going over the load factor */
+		int needed = (int) Math.min(1 << 30, (long) Math.ceil(expectedSymbols / loadFactor));
+		allocate(Math.max(DEFAULT_SIZE, Integer.highestOneBit(needed - 1) << 1));
+	}
+
+	public SparseHistogram() {
+		allocate(DEFAULT_SIZE);
+	}
+
+	@Override
+	public void increment(int symbol) {
+		add(symbol, 1);
+	}
+
+	@Override
+	public void add(int symbol, long count) {
+		if (symbol < 0)
+			throw new IllegalArgumentException("Symbols cannot be negative.");
+		if (count < 0)
+			throw new IllegalArgumentException("Count cannot be negative.");
+		if (count == 0)
+			return; /* A symbol with no occurrences must not take a slot, or it would show up in symbols() */
+		int slot = slotOf(symbol);
+		if (keys[slot] == EMPTY) {
+			if (currentSize + 1 > keys.length * loadFactor) {
+				rehash();
+				slot = slotOf(symbol);
+			}
+			keys[slot] = symbol;
+			currentSize++;
+			maxSymbol = Math.max(maxSymbol, symbol);
+		}
+		counts[slot] += count;
+		total += count;
+	}
+
+	@Override
+	public long get(int symbol) {
+		if (symbol < 0)
+			return 0;
+		int slot = slotOf(symbol);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	@Override
+	public int distinctSymbols() {
+		return currentSize;
+	}
+
+	@Override
+	public long total() {
+		return total;
+	}
+
+	@Override
+	public int maxSymbol() {
+		return maxSymbol;
+	}
+
+	@Override
+	public int[] symbols() {
+		int[] result = new int[currentSize];
+		int i = 0;
+		for (int key : keys)
+			if (key != EMPTY)
+				result[i++] = key;
+		Arrays.sort(result);
+		return result;
+	}
+
+	@Override
+	public void merge(Histogram other) {
+		for (int s : other.symbols())
+			add(s, other.get(s));
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return total == 0;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(counts, 0);
+		currentSize = 0;
+		total = 0;
+		maxSymbol = -1;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the slot that holds the symbol, or the empty slot where it belongs
+	 */
+	private int slotOf(int symbol) {
+		int mask = keys.length - 1;
+		/* Scramble the bits so consecutive symbols don't fill consecutive slots */
+		int hash = symbol * 0x9E3779B9;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != symbol)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		counts = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		long[] oldCounts = counts;
+		allocate(2 * oldKeys.length);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+}
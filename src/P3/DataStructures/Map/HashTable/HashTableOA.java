@@ -0,0 +1,248 @@
+package P3.DataStructures.Map.HashTable;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+import P3.DataStructures.List.ArrayList;
+import P3.DataStructures.List.List;
+import P3.DataStructures.Map.Map;
+
+/**
+ * Hash table with open addressing: entries sit right in the table, and a key whose slot is taken goes in the next
+ * free one (linear probing).
+ *
+ * HashTableSC keeps a linked list per bucket and a node per entry, so every lookup walks a chain, and put() removes the
+ * key before adding it again. Here a lookup reads one slot, or a few neighbouring ones, and put() overwrites the value
+ * where it finds it. The capacity is a power of two, so the home slot of a key is the top bits of its hash times
+ * 0x9E3779B9 (Fibonacci hashing) instead of a division; the multiply also spreads keys with close hashes, like the
+ * sums of SimpleHashFunction. The table doubles as soon as more than 3/4 of its slots would be taken.
+ *
+ * A removed entry leaves no marker behind: the entries after it are moved back (backward shift deletion), so lookups
+ * don't get slower after many removals.
+ */
+public class HashTableOA<K, V> implements Map<K, V> {
+
+	// private fields
+	private int currentSize;
+	private K[] keys;
+	private V[] values;
+	private int[] hashes;     /* Spread hash of the key in every slot, so probing and growing don't hash again */
+	private int shift;        /* 32 - log2(capacity), the top bits of a spread hash are its home slot */
+	private int threshold;    /* Largest size before the table doubles */
+	private HashFunction<K> hashFunction;
+	private final static double loadFactor = 0.75;
+	private static final int DEFAULT_SIZE = 11;
+	private static final int MIN_CAPACITY = 4;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * @param initialCapacity number of entries the table holds before it has to grow
+	 * @param hashFunction hash function of the keys
+	 */
+	public HashTableOA(int initialCapacity, HashFunction<K> hashFunction) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		if (hashFunction == null)
+			throw new IllegalArgumentException("Hash function cannot be null");
+
+		this.hashFunction = hashFunction;
+		int capacity = MIN_CAPACITY;
+		while (capacity < MAX_CAPACITY && capacity * loadFactor < initialCapacity)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	public HashTableOA(HashFunction<K> hashFunction) {
+		this(DEFAULT_SIZE, hashFunction);
+	}
+
+	@Override
+	public V get(K key) {
+		if (key == null)
+			throw new IllegalArgumentException("Parameter cannot be null.");
+		int slot = find(key, spread(key));
+		return slot < 0 ? null : values[slot];
+	}
+
+	@Override
+	public void put(K key, V value) {
+		if (key == null || value == null)
+			throw new IllegalArgumentException("Parameter cannot be null.");
+		int hash = spread(key);
+		int slot = find(key, hash);
+		if (slot >= 0)
+			values[slot] = value;
+		else
+			insert(key, value, hash, ~slot);
+	}
+
+	/**
+	 * Combines the value of a key in a single lookup: a key that isn't in the table gets the value,
+	 * one that is gets remapping(its value, value), and is removed if that is null.
+	 *
+	 * @return the new value of the key, or null if it was removed
+	 */
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+		if (key == null || value == null || remapping == null)
+			throw new IllegalArgumentException("Parameter cannot be null.");
+		int hash = spread(key);
+		int slot = find(key, hash);
+		if (slot < 0) {
+			insert(key, value, hash, ~slot);
+			return value;
+		}
+		V merged = remapping.apply(values[slot], value);
+		if (merged == null)
+			removeSlot(slot);
+		else
+			values[slot] = merged;
+		return merged;
+	}
+
+	@Override
+	public V remove(K key) {
+		if (key == null)
+			throw new IllegalArgumentException("Parameter cannot be null.");
+		int slot = find(key, spread(key));
+		if (slot < 0)
+			return null;
+		V result = values[slot];
+		removeSlot(slot);
+		return result;
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		if (key == null)
+			throw new IllegalArgumentException("Parameter cannot be null.");
+		return find(key, spread(key)) >= 0;
+	}
+
+	/**
+	 * @return the keys, in the same order as getValues(); get(i) on the list is constant time
+	 */
+	@Override
+	public List<K> getKeys() {
+		List<K> result = new ArrayList<K>(Math.max(1, currentSize));
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null)
+				result.add(keys[i]);
+		return result;
+	}
+
+	@Override
+	public List<V> getValues() {
+		List<V> result = new ArrayList<V>(Math.max(1, currentSize));
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null)
+				result.add(values[i]);
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return currentSize;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public void clear() {
+		currentSize = 0;
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+	}
+
+	@Override
+	public void print(PrintStream out) {
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null)
+				out.printf("(%s, %s)\n", keys[i], values[i]);
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = (K[]) new Object[capacity];
+		values = (V[]) new Object[capacity];
+		hashes = new int[capacity];
+		shift = Integer.numberOfLeadingZeros(capacity) + 1;
+		threshold = (int) (capacity * loadFactor);
+	}
+
+	private int spread(K key) {
+		return hashFunction.hashCode(key) * 0x9E3779B9;
+	}
+
+	/**
+	 * @return the slot of the key, or ~slot of the free slot where it would go
+	 */
+	private int find(K key, int hash) {
+		int mask = keys.length - 1;
+		int slot = hash >>> shift;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && keys[slot].equals(key))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return ~slot;
+	}
+
+	private void insert(K key, V value, int hash, int slot) {
+		if (currentSize >= threshold) {
+			rehash();
+			slot = ~find(key, hash);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		hashes[slot] = hash;
+		currentSize++;
+	}
+
+	/**
+	 * Empties a slot, moving back every entry after it that would no longer be found past the hole
+	 */
+	private void removeSlot(int hole) {
+		int mask = keys.length - 1;
+		for (int slot = (hole + 1) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+			/* The entry can fill the hole unless its home slot is between the hole and where it is now */
+			int home = hashes[slot] >>> shift;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys[hole] = keys[slot];
+				values[hole] = values[slot];
+				hashes[hole] = hashes[slot];
+				hole = slot;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = null;
+		currentSize--;
+	}
+
+	private void rehash() {
+		if (keys.length == MAX_CAPACITY)
+			throw new IllegalStateException("Hash table cannot grow past " + MAX_CAPACITY + " slots.");
+		K[] oldKeys = keys;
+		V[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(2 * oldKeys.length);
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == null)
+				continue;
+			int slot = oldHashes[i] >>> shift;
+			while (keys[slot] != null)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			hashes[slot] = oldHashes[i];
+		}
+	}
+
+}
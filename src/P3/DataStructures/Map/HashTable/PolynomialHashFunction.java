@@ -0,0 +1,21 @@
+package P3.DataStructures.Map.HashTable;
+
+/**
+ * Hashes the key's string as a polynomial in 31, like String.hashCode().
+ * 
+ * SimpleHashFunction adds the characters up, so every anagram lands in the same bucket and all short keys
+ * share a few hundred buckets; fine for single characters, but not for large sets of words.
+ * The sign bit is cleared so the result can be used as a bucket index.
+ */
+public class PolynomialHashFunction<K> implements HashFunction<K> {
+
+	@Override
+	public int hashCode(K key) {
+		String temp = key.toString();
+		int result = 0;
+		for (int i = 0; i < temp.length(); i++)
+			result = 31 * result + temp.charAt(i);
+		return result & 0x7FFFFFFF;
+	}
+
+}
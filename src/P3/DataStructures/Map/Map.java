@@ -1,6 +1,7 @@
 package P3.DataStructures.Map;
 
 import java.io.PrintStream;
+import java.util.function.BiFunction;
 
 import P3.DataStructures.List.List;
 
@@ -17,4 +18,20 @@ public interface Map<K, V> {
 	boolean isEmpty();
 	void clear();
 	void print(PrintStream out); /* For debugging purposes */
+
+	/**
+	 * Gives the key the value if it has none, remapping(its value, value) otherwise, and removes it if that is null.
+	 * This one does a get() and a put(); HashTableOA does it in a single lookup.
+	 *
+	 * @return the new value of the key, or null if it was removed
+	 */
+	default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+		V old = get(key);
+		V merged = old == null ? value : remapping.apply(old, value);
+		if (merged == null)
+			remove(key);
+		else
+			put(key, merged);
+		return merged;
+	}
 }
\ No newline at end of file
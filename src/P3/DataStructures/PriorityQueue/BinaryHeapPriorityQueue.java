@@ -0,0 +1,103 @@
+package P3.DataStructures.PriorityQueue;
+
+/**
+ * Priority queue implemented as a binary min-heap stored in an array.
+ * 
+ * The children of the value at index i are at 2i + 1 and 2i + 2, and no child is smaller than its parent.
+ * Both add() and removeMin() only move values along one path between the root and a leaf, so they are O(log n),
+ * unlike a SortedArrayList which shifts the whole array when removing its first value.
+ */
+public class BinaryHeapPriorityQueue<E extends Comparable<? super E>> implements PriorityQueue<E> {
+
+	private static final int DEFAULT_SIZE = 11;
+
+	// private fields
+	private E[] elements;
+	private int currentSize;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BinaryHeapPriorityQueue(int initialCapacity) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		elements = (E[]) new Comparable[initialCapacity]; // Cannot use Object here
+		currentSize = 0;
+	}
+
+	public BinaryHeapPriorityQueue() {
+		this(DEFAULT_SIZE);
+	}
+
+	@Override
+	public void add(E e) {
+		if (e == null)
+			throw new IllegalArgumentException("Value cannot be null.");
+		if (size() == elements.length)
+			reAllocate();
+		/* Put the value at the end, and move it up while it's smaller than its parent */
+		int index = currentSize++;
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (elements[parent].compareTo(e) <= 0)
+				break;
+			elements[index] = elements[parent];
+			index = parent;
+		}
+		elements[index] = e;
+	}
+
+	@Override
+	public E removeMin() {
+		if (isEmpty())
+			throw new IllegalStateException("Priority queue is empty.");
+		E result = elements[0];
+		E last = elements[--currentSize];
+		elements[currentSize] = null;
+		if (!isEmpty()) {
+			/* Put the last value at the root, and move it down while a child is smaller */
+			int index = 0;
+			int child;
+			while ((child = 2 * index + 1) < currentSize) {
+				if (child + 1 < currentSize && elements[child + 1].compareTo(elements[child]) < 0)
+					child++;
+				if (last.compareTo(elements[child]) <= 0)
+					break;
+				elements[index] = elements[child];
+				index = child;
+			}
+			elements[index] = last;
+		}
+		return result;
+	}
+
+	@Override
+	public E min() {
+		if (isEmpty())
+			throw new IllegalStateException("Priority queue is empty.");
+		return elements[0];
+	}
+
+	@Override
+	public int size() {
+		return currentSize;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < currentSize; i++)
+			elements[i] = null;
+		currentSize = 0;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void reAllocate() {
+		E[] newElements = (E[]) new Comparable[2 * elements.length]; // Cannot use Object here
+		System.arraycopy(elements, 0, newElements, 0, size());
+		elements = newElements;
+	}
+
+}
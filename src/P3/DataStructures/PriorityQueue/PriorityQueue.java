@@ -0,0 +1,33 @@
+package P3.DataStructures.PriorityQueue;
+
+public interface PriorityQueue<E extends Comparable<? super E>> {
+
+	/**
+	 * Add a new value to the priority queue.
+	 * 
+	 * @param e Value to be added to the queue
+	 * @throws IllegalArgumentException If the value e is null
+	 */
+	void add(E e) throws IllegalArgumentException;
+
+	/**
+	 * Remove the smallest value from the queue.
+	 * If several values are equal, any one of them may be removed.
+	 * 
+	 * @return The smallest value in the queue
+	 * @throws IllegalStateException If the queue is empty
+	 */
+	E removeMin() throws IllegalStateException;
+
+	/**
+	 * Returns the smallest value in the queue without removing it.
+	 * 
+	 * @return The smallest value in the queue
+	 * @throws IllegalStateException If the queue is empty
+	 */
+	E min() throws IllegalStateException;
+
+	int size();
+	boolean isEmpty();
+	void clear();
+}
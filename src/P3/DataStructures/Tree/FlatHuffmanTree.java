@@ -0,0 +1,189 @@
+package P3.DataStructures.Tree;
+
+import P3.DataStructures.Histogram.Histogram;
+
+/**
+ * Huffman tree stored in parallel arrays instead of BTNode objects.
+ *
+ * Node i has weight[i], left[i], right[i] and symbol[i]. The first leafCount() nodes are the leaves,
+ * in increasing order of symbol; the internal nodes follow in the order they were merged, so the root is the last node
+ * and every parent comes after its children. Internal nodes don't store their characters, so there is no
+ * string concatenation, and walking the tree is walking a few arrays.
+ *
+ * The tree is built with the two-queue algorithm: leaves are sorted by weight once, and merged nodes are
+ * created in increasing order of weight, so the two lowest weights are always at the front of one of the two queues.
+ * Ties are broken by taking leaves before merged nodes, and lower symbols before higher ones.
+ */
+public class FlatHuffmanTree {
+
+	// private fields
+	private final long[] weight;
+	private final int[] left, right, symbol;
+	private final int leafCount;
+	private final int nodeCount;
+
+	private FlatHuffmanTree(int leafCount) {
+		this.leafCount = leafCount;
+		this.nodeCount = Math.max(1, 2 * leafCount - 1);
+		weight = new long[nodeCount];
+		left = new int[nodeCount];
+		right = new int[nodeCount];
+		symbol = new int[nodeCount];
+	}
+
+	/**
+	 * Builds the Huffman tree of the symbols in a histogram
+	 *
+	 * @param histogram frequency of every symbol, must not be empty
+	 * @return the tree
+	 */
+	public static FlatHuffmanTree build(Histogram histogram) {
+		if (histogram.isEmpty())
+			throw new IllegalArgumentException("Histogram cannot be empty.");
+		int[] symbols = histogram.symbols();
+		int n = symbols.length;
+		FlatHuffmanTree tree = new FlatHuffmanTree(n);
+
+		for (int i = 0; i < n; i++) {
+			tree.weight[i] = histogram.get(symbols[i]);
+			tree.symbol[i] = symbols[i];
+			tree.left[i] = tree.right[i] = -1;
+		}
+
+		/* Leaves in increasing order of weight; a stable sort keeps lower symbols first on ties */
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		sortByWeight(order, tree.weight);
+
+		/* Merged nodes are appended right after the leaves, which makes the array itself the second queue */
+		int leafFront = 0;
+		int mergedFront = n;
+		for (int next = n; next < tree.nodeCount; next++) {
+			int a, b;
+			if (mergedFront == next || (leafFront < n && tree.weight[order[leafFront]] <= tree.weight[mergedFront]))
+				a = order[leafFront++];
+			else
+				a = mergedFront++;
+			if (mergedFront == next || (leafFront < n && tree.weight[order[leafFront]] <= tree.weight[mergedFront]))
+				b = order[leafFront++];
+			else
+				b = mergedFront++;
+
+			tree.left[next] = a;
+			tree.right[next] = b;
+			tree.weight[next] = tree.weight[a] + tree.weight[b];
+			tree.symbol[next] = -1;
+		}
+		return tree;
+	}
+
+	/**
+	 * Computes the code length (depth) of every symbol, in one pass from the root down.
+	 *
+	 * @param alphabetSize size of the resulting array; must be larger than every symbol in the tree
+	 * @return code length of every symbol indexed by symbol, 0 for symbols not in the tree.
+	 *         Depths that don't fit in a byte are saturated at Byte.MAX_VALUE.
+	 */
+	public byte[] codeLengths(int alphabetSize) {
+		byte[] lengths = new byte[alphabetSize];
+		byte[] leafLengths = leafCodeLengths();
+		for (int leaf = 0; leaf < leafCount; leaf++)
+			lengths[symbol[leaf]] = leafLengths[leaf];
+		return lengths;
+	}
+
+	/**
+	 * Same as codeLengths(), but indexed by leaf instead of by symbol, so the array is as long as the number of symbols
+	 * in the tree however large they are. Leaves are in increasing order of symbol, so a leaf's index is the rank of its symbol.
+	 *
+	 * @return code length of every leaf
+	 */
+	public byte[] leafCodeLengths() {
+		byte[] lengths = new byte[leafCount];
+		if (leafCount == 1) {
+			lengths[0] = 1; /* A single symbol still needs one bit */
+			return lengths;
+		}
+		/* Parents come after their children, so walking backwards visits every parent before its children */
+		int[] depth = new int[nodeCount];
+		for (int node = nodeCount - 1; node >= leafCount; node--) {
+			depth[left[node]] = depth[node] + 1;
+			depth[right[node]] = depth[node] + 1;
+		}
+		for (int leaf = 0; leaf < leafCount; leaf++)
+			lengths[leaf] = (byte) Math.min(depth[leaf], Byte.MAX_VALUE);
+		return lengths;
+	}
+
+	/**
+	 * @param alphabetSize size of the resulting array; must be larger than every symbol in the tree
+	 * @return weight of every symbol indexed by symbol, 0 for symbols not in the tree
+	 */
+	public long[] frequencies(int alphabetSize) {
+		long[] result = new long[alphabetSize];
+		for (int leaf = 0; leaf < leafCount; leaf++)
+			result[symbol[leaf]] = weight[leaf];
+		return result;
+	}
+
+	public int root() {
+		return nodeCount - 1;
+	}
+	public int leafCount() {
+		return leafCount;
+	}
+	public int nodeCount() {
+		return nodeCount;
+	}
+	public boolean isLeaf(int node) {
+		return node < leafCount;
+	}
+	public long getWeight(int node) {
+		return weight[node];
+	}
+	public int getLeft(int node) {
+		return left[node];
+	}
+	public int getRight(int node) {
+		return right[node];
+	}
+	/**
+	 * @param node a leaf
+	 * @return the symbol of the leaf, or -1 for internal nodes
+	 */
+	public int getSymbol(int node) {
+		return symbol[node];
+	}
+	/**
+	 * @return the largest symbol in the tree
+	 */
+	public int maxSymbol() {
+		return symbol[leafCount - 1]; /* Leaves are in increasing order of symbol */
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Stable merge sort of node indices by weight, without boxing
+	 */
+	private static void sortByWeight(int[] order, long[] weight) {
+		int n = order.length;
+		int[] buffer = new int[n];
+		for (int width = 1; width < n; width *= 2) {
+			for (int lo = 0; lo < n - width; lo += 2 * width) {
+				int mid = lo + width;
+				int hi = Math.min(lo + 2 * width, n);
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi)
+					buffer[k++] = weight[order[j]] < weight[order[i]] ? order[j++] : order[i++];
+				while (i < mid)
+					buffer[k++] = order[i++];
+				while (j < hi)
+					buffer[k++] = order[j++];
+				System.arraycopy(buffer, lo, order, lo, hi - lo);
+			}
+		}
+	}
+
+}
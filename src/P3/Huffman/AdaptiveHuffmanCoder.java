@@ -0,0 +1,232 @@
+package P3.Huffman;
+
+import java.util.Arrays;
+
+/**
+ * One-pass adaptive Huffman coding (the FGK algorithm).
+ *
+ * Encoder and decoder start from the same tree, which holds a single NYT ("not yet transmitted") leaf, and update
+ * their trees the same way after every symbol, so no frequencies or code table ever have to be sent.
+ * A symbol seen for the first time is sent as the code of the NYT leaf followed by the symbol itself in symbolBits raw
+ * bits; the NYT leaf then splits into a new NYT leaf and a leaf for the symbol.
+ *
+ * The tree keeps the sibling property: numbering the nodes bottom up, left to right, weights never decrease,
+ * and siblings are numbered next to each other. Nodes are stored in arrays indexed by that number, so the root is
+ * always the last node. Before a node's weight goes up it is swapped with the highest numbered node of the same weight,
+ * which is what keeps the property, and therefore keeps the tree a Huffman tree of the symbols seen so far.
+ * That node is found with a binary search over the weights, so an update costs O(depth * log n).
+ */
+public class AdaptiveHuffmanCoder {
+
+	/** Leaf of the symbols not seen yet */
+	public static final int NYT = -1;
+	private static final int INTERNAL = -2;
+
+	// private fields
+	private final int alphabetSize;
+	private final int symbolBits;
+	private final long[] weight;
+	private final int[] parent, left, right, symbol;
+	private final int[] leafOf;  /* Node of every symbol, -1 if it wasn't seen yet */
+	private final int root;
+	private int nyt;             /* Node of the NYT leaf, always the lowest numbered node in use */
+	private final int[] path;    /* Scratch space for the bits of a code, collected from the leaf up */
+
+	/**
+	 * @param alphabetSize number of different symbols, from 0 to alphabetSize - 1
+	 */
+	public AdaptiveHuffmanCoder(int alphabetSize) {
+		if (alphabetSize < 1 || alphabetSize > HuffmanDecoder.MAX_SYMBOL + 1)
+			throw new IllegalArgumentException("Alphabet size must be between 1 and " + (HuffmanDecoder.MAX_SYMBOL + 1));
+		this.alphabetSize = alphabetSize;
+		this.symbolBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(alphabetSize - 1));
+		/* Every symbol plus the NYT leaf, and one fewer internal nodes */
+		int nodeCount = 2 * alphabetSize + 1;
+		weight = new long[nodeCount];
+		parent = new int[nodeCount];
+		left = new int[nodeCount];
+		right = new int[nodeCount];
+		symbol = new int[nodeCount];
+		leafOf = new int[alphabetSize];
+		path = new int[nodeCount];
+		root = nodeCount - 1;
+		reset();
+	}
+
+	/**
+	 * Goes back to the initial tree, with every symbol unseen
+	 */
+	public void reset() {
+		Arrays.fill(leafOf, -1);
+		nyt = root;
+		weight[root] = 0;
+		parent[root] = -1;
+		left[root] = right[root] = -1;
+		symbol[root] = NYT;
+	}
+
+	/**
+	 * Writes the code of a symbol and updates the tree
+	 *
+	 * @param s symbol to encode
+	 * @param out writer that receives the code
+	 */
+	public void encode(int s, BitWriter out) {
+		if (s < 0 || s >= alphabetSize)
+			throw new IllegalArgumentException("Symbol out of range: " + s);
+		int node = leafOf[s];
+		if (node < 0) {
+			writePath(nyt, out);
+			out.writeBits(s, symbolBits);
+		} else
+			writePath(node, out);
+		update(s);
+	}
+
+	/**
+	 * Reads the code of the next symbol and updates the tree
+	 *
+	 * @param in reader positioned at the start of a code
+	 * @return the decoded symbol
+	 */
+	public int decode(BitReader in) {
+		int node = root;
+		while (!isLeaf(node))
+			node = child(node, in.readBit());
+		int s = symbol[node] == NYT ? readNewSymbol((int) in.readBits(symbolBits)) : symbol[node];
+		update(s);
+		return s;
+	}
+
+	/**
+	 * Increases the weight of a symbol by one, adding its leaf if it's new, and restores the sibling property
+	 *
+	 * @param s symbol that was just encoded or decoded
+	 */
+	public void update(int s) {
+		int node = leafOf[s];
+		if (node < 0) {
+			/* Split the NYT leaf: the old node becomes their parent, the new NYT on the left and the symbol on the right */
+			int oldNyt = nyt;
+			nyt = oldNyt - 2;
+			node = oldNyt - 1;
+			setLeaf(nyt, NYT, oldNyt);
+			setLeaf(node, s, oldNyt);
+			leafOf[s] = node;
+			symbol[oldNyt] = INTERNAL;
+			left[oldNyt] = nyt;
+			right[oldNyt] = node;
+		}
+		while (node != -1) {
+			int leader = blockLeader(node);
+			if (leader != node && leader != parent[node]) {
+				swap(node, leader);
+				node = leader;
+			}
+			weight[node]++;
+			node = parent[node];
+		}
+	}
+
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+	public int getSymbolBits() {
+		return symbolBits;
+	}
+
+	////PACKAGE METHODS (used by AdaptiveHuffmanInputStream to walk the tree one bit at a time)////
+
+	int root() {
+		return root;
+	}
+	boolean isLeaf(int node) {
+		return left[node] < 0;
+	}
+	int child(int node, boolean bit) {
+		return bit ? right[node] : left[node];
+	}
+	/**
+	 * @return symbol of a leaf, or NYT
+	 */
+	int leafSymbol(int node) {
+		return symbol[node];
+	}
+	/**
+	 * Checks a symbol that was read in raw bits after the NYT code
+	 */
+	int readNewSymbol(int s) {
+		if (s >= alphabetSize || leafOf[s] >= 0)
+			throw new IllegalArgumentException("Corrupt stream, symbol " + s + " can't follow the NYT code.");
+		return s;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void setLeaf(int node, int s, int parentNode) {
+		weight[node] = 0;
+		parent[node] = parentNode;
+		left[node] = right[node] = -1;
+		symbol[node] = s;
+	}
+
+	/**
+	 * @return the highest numbered node with the same weight as the node. Weights never decrease with the numbering,
+	 *         so it's found with a binary search instead of walking the whole block, which on flat distributions
+	 *         can hold most of the tree.
+	 */
+	private int blockLeader(int node) {
+		long w = weight[node];
+		int low = node, high = root;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (weight[mid] <= w)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Exchanges the subtrees at two positions of the numbering. Parents stay with the positions,
+	 * so only the children and the leaf lookup have to be pointed at the new positions.
+	 */
+	private void swap(int a, int b) {
+		long w = weight[a]; weight[a] = weight[b]; weight[b] = w;
+		int t = left[a]; left[a] = left[b]; left[b] = t;
+		t = right[a]; right[a] = right[b]; right[b] = t;
+		t = symbol[a]; symbol[a] = symbol[b]; symbol[b] = t;
+		relink(a);
+		relink(b);
+	}
+
+	private void relink(int node) {
+		if (isLeaf(node)) {
+			if (symbol[node] >= 0)
+				leafOf[symbol[node]] = node;
+			else
+				nyt = node;
+		} else {
+			parent[left[node]] = node;
+			parent[right[node]] = node;
+		}
+	}
+
+	/**
+	 * Writes the path from the root down to the node: 0 for a left child, 1 for a right child
+	 */
+	private void writePath(int node, BitWriter out) {
+		int depth = 0;
+		for (int n = node; n != root; n = parent[n])
+			path[depth++] = right[parent[n]] == n ? 1 : 0;
+		while (depth > 0) {
+			int chunk = Math.min(depth, 64);
+			long bits = 0;
+			for (int i = 0; i < chunk; i++)
+				bits = (bits << 1) | path[--depth];
+			out.writeBits(bits, chunk);
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package P3.Huffman;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static P3.Huffman.AdaptiveHuffmanOutputStream.*;
+
+/**
+ * Decompresses a stream written by AdaptiveHuffmanOutputStream, updating its tree the same way the writer did.
+ *
+ * Bits are taken from the underlying stream one byte at a time as they are needed, so a symbol is returned as soon as
+ * its code has arrived; a read() never waits for more input once it has something to return.
+ */
+public class AdaptiveHuffmanInputStream extends FilterInputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	// private fields
+	private final AdaptiveHuffmanCoder coder = new AdaptiveHuffmanCoder(ALPHABET_SIZE);
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition, bufferLength;
+	private int currentByte;
+	private int bitsLeft;  /* Bits of currentByte not consumed yet */
+	private boolean ended;
+
+	public AdaptiveHuffmanInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int s = FLUSH;
+		while (s == FLUSH && !ended)
+			s = nextSymbol();
+		return s == FLUSH || s == END ? -1 : s;
+	}
+
+	@Override
+	public int read(byte[] dest, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > dest.length)
+			throw new IndexOutOfBoundsException();
+		if (length == 0)
+			return 0;
+		int count = 0;
+		/* Only block for input while nothing was decoded yet */
+		while (count < length && !ended && (count == 0 || bitsLeft > 0 || bufferPosition < bufferLength || in.available() > 0)) {
+			int s = nextSymbol();
+			if (s < FLUSH)
+				dest[offset + count++] = (byte) s;
+		}
+		return count == 0 && ended ? -1 : count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && read() >= 0)
+			skipped++;
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return 0;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("Mark is not supported.");
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Decodes the next symbol and follows the control symbols: END ends the stream, FLUSH skips the padding after it
+	 *
+	 * @return the symbol, a byte value, FLUSH or END
+	 */
+	private int nextSymbol() throws IOException {
+		int node = coder.root();
+		while (!coder.isLeaf(node))
+			node = coder.child(node, readBit());
+		int s = coder.leafSymbol(node);
+		if (s == AdaptiveHuffmanCoder.NYT) {
+			s = 0;
+			for (int i = 0; i < coder.getSymbolBits(); i++)
+				s = (s << 1) | (readBit() ? 1 : 0);
+			try {
+				s = coder.readNewSymbol(s);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		coder.update(s);
+
+		if (s == END)
+			ended = true;
+		else if (s == FLUSH)
+			bitsLeft = 0;  /* The writer padded to the next byte */
+		return s;
+	}
+
+	private boolean readBit() throws IOException {
+		if (bitsLeft == 0) {
+			if (bufferPosition == bufferLength) {
+				bufferLength = in.read(buffer, 0, buffer.length);
+				bufferPosition = 0;
+				if (bufferLength <= 0) {
+					bufferLength = 0;
+					throw new EOFException("Adaptive Huffman stream is truncated.");
+				}
+			}
+			currentByte = buffer[bufferPosition++] & 0xFF;
+			bitsLeft = 8;
+		}
+		bitsLeft--;
+		return ((currentByte >>> bitsLeft) & 1) != 0;
+	}
+
+}
@@ -0,0 +1,96 @@
+package P3.Huffman;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses bytes with adaptive Huffman coding as they are written, in a single pass and without any header,
+ * for data that can't be held back until the whole input is known, like sockets and pipes.
+ *
+ * Besides the 256 byte values the alphabet has two control symbols: FLUSH, written by flush() and followed by padding
+ * up to the next byte so everything written so far can be sent right away, and END, written by close().
+ * Read the data back with AdaptiveHuffmanInputStream.
+ */
+public class AdaptiveHuffmanOutputStream extends FilterOutputStream {
+
+	static final int FLUSH = 256;
+	static final int END = 257;
+	static final int ALPHABET_SIZE = 258;
+
+	/* Complete words are handed to the underlying stream once this many bytes are pending */
+	private static final int BUFFER_SIZE = 8192;
+
+	// private fields
+	private final AdaptiveHuffmanCoder coder = new AdaptiveHuffmanCoder(ALPHABET_SIZE);
+	private final BitWriter bits = new BitWriter(BUFFER_SIZE + 64);
+	private boolean closed;
+
+	public AdaptiveHuffmanOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		coder.encode(b & 0xFF, bits);
+		drainIfFull();
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		ensureOpen();
+		if (offset < 0 || length < 0 || offset + length > data.length)
+			throw new IndexOutOfBoundsException();
+		for (int i = offset; i < offset + length; i++) {
+			coder.encode(data[i] & 0xFF, bits);
+			drainIfFull();
+		}
+	}
+
+	/**
+	 * Writes a FLUSH symbol and pads to the next byte, so a reader can decode everything written so far,
+	 * then flushes the underlying stream. Costs a few bits, so don't call it more often than the data needs.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		finishWith(FLUSH);
+		out.flush();
+	}
+
+	/**
+	 * Writes the END symbol and closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			finishWith(END);
+			closed = true;
+		} finally {
+			out.close();
+		}
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void finishWith(int control) throws IOException {
+		coder.encode(control, bits);
+		bits.alignToByte();
+		bits.writeTo(out);
+		bits.reset();
+	}
+
+	private void drainIfFull() throws IOException {
+		if (bits.byteLength() >= BUFFER_SIZE)
+			bits.drainTo(out);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("Stream is closed.");
+	}
+
+}
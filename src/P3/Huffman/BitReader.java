@@ -0,0 +1,126 @@
+package P3.Huffman;
+
+/**
+ * Reads bits from a packed byte array, most significant bit first, in the same order BitWriter writes them.
+ *
+ * The next bits of the stream are kept left aligned in a 64-bit buffer that is refilled a byte at a time,
+ * so peeking at up to MAX_PEEK bits never has to go back to the array.
+ * Reading past the end of the data yields zeros; callers check position() against the real bit length.
+ */
+public class BitReader {
+
+	/** Largest number of bits that can be peeked or read in one call */
+	public static final int MAX_PEEK = 56;
+
+	// private fields
+	private final byte[] data;
+	private final int length;   /* Number of bytes that belong to the stream */
+	private final int limit;    /* One past the last byte that belongs to the stream */
+	private int nextByte;       /* Next byte to load into the buffer */
+	private long buffer;        /* Next bits of the stream, left aligned */
+	private int bufferedBits;
+	private long position;
+
+	public BitReader(byte[] data) {
+		this(data, 0, data.length);
+	}
+
+	public BitReader(byte[] data, int offset, int length) {
+		if (data == null)
+			throw new IllegalArgumentException("Data cannot be null.");
+		if (offset < 0 || length < 0 || offset + length > data.length)
+			throw new IndexOutOfBoundsException();
+		this.data = data;
+		this.length = length;
+		this.nextByte = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * Returns the next length bits without consuming them.
+	 *
+	 * @param length number of bits to look at (1 to MAX_PEEK)
+	 * @return the bits, right aligned
+	 */
+	public long peekBits(int length) {
+		if (bufferedBits < length)
+			refill();
+		return buffer >>> (64 - length);
+	}
+
+	/**
+	 * Consumes bits that were already looked at with peekBits().
+	 *
+	 * @param length number of bits to consume (0 to MAX_PEEK)
+	 */
+	public void skipBits(int length) {
+		if (bufferedBits < length)
+			refill();
+		buffer <<= length;
+		bufferedBits -= length;
+		position += length;
+	}
+
+	/**
+	 * Reads and consumes the next length bits.
+	 *
+	 * @param length number of bits to read (0 to MAX_PEEK)
+	 * @return the bits, right aligned
+	 */
+	public long readBits(int length) {
+		if (length == 0)
+			return 0;
+		if (length < 0 || length > MAX_PEEK)
+			throw new IllegalArgumentException("Length must be between 0 and " + MAX_PEEK);
+		long bits = peekBits(length);
+		skipBits(length);
+		return bits;
+	}
+
+	/**
+	 * @return true if the next bit is a 1, false otherwise
+	 */
+	public boolean readBit() {
+		return readBits(1) != 0;
+	}
+
+	/**
+	 * Skips up to the next byte boundary, the counterpart of BitWriter.alignToByte().
+	 */
+	public void alignToByte() {
+		skipBits((int) (-position & 7));
+	}
+
+	/**
+	 * @return number of bits consumed so far
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * Checks that the codes read so far end in the last byte of the data, padded with zeros like BitWriter pads them.
+	 * Since reading past the end yields zeros, this is how a decoder finds out it ran out of data.
+	 *
+	 * @throws IllegalArgumentException if the codes ran past the end of the data, or left whole bytes or padding unused
+	 */
+	public void checkEnd() {
+		if ((position + 7) >>> 3 != length)
+			throw new IllegalArgumentException("Codes end at bit " + position + " of " + 8L * length + ".");
+		int padding = (int) (-position & 7);
+		if (padding > 0 && peekBits(padding) != 0)
+			throw new IllegalArgumentException("Padding after the last code is not zero.");
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void refill() {
+		/* Load whole bytes while they fit; once the data runs out the buffer is padded with zeros */
+		while (bufferedBits <= 56) {
+			long next = nextByte < limit ? data[nextByte++] & 0xFF : 0;
+			buffer |= next << (56 - bufferedBits);
+			bufferedBits += 8;
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+package P3.Huffman;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes variable length bit codes into a packed byte array, most significant bit first.
+ *
+ * Bits are gathered in a 64-bit accumulator and only flushed to the byte array one 32-bit word at a time,
+ * so writing a code is a shift and an or, instead of a string concatenation per symbol.
+ *
+ * The writer is reusable: calling reset() keeps the already allocated buffer for the next message.
+ */
+public class BitWriter {
+
+	private static final int DEFAULT_SIZE = 64;
+
+	// private fields
+	private byte[] buffer;
+	private int byteCount;      /* Bytes already flushed to the buffer */
+	private long accumulator;   /* Pending bits live in the lowest pendingBits bits */
+	private int pendingBits;
+	private long bitLength;
+
+	public BitWriter(int initialCapacity) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		buffer = new byte[initialCapacity];
+	}
+
+	public BitWriter() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Appends the lowest length bits of the given code, most significant bit first.
+	 *
+	 * @param bits the code to write, right aligned
+	 * @param length how many bits of the code to write (0 to 64)
+	 */
+	public void writeBits(long bits, int length) {
+		if (length < 0 || length > 64)
+			throw new IllegalArgumentException("Length must be between 0 and 64");
+		if (length > 32) {
+			/* The accumulator never holds more than 31 pending bits, so feed it at most 32 bits at a time */
+			writeBits(bits >>> 32, length - 32);
+			length = 32;
+		}
+		if (length == 0)
+			return;
+
+		accumulator = (accumulator << length) | (bits & (-1L >>> (64 - length)));
+		pendingBits += length;
+		bitLength += length;
+
+		if (pendingBits >= 32) {
+			/* Flush a whole word; stale bits above pendingBits are discarded by the int cast */
+			pendingBits -= 32;
+			writeWord((int) (accumulator >>> pendingBits));
+		}
+	}
+
+	/**
+	 * Appends a single bit.
+	 *
+	 * @param bit true for a 1, false for a 0
+	 */
+	public void writeBit(boolean bit) {
+		writeBits(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Appends a code given as a string of '0' and '1' characters, like the ones produced by huffman_code()
+	 *
+	 * @param code prefix code to write
+	 */
+	public void writeCode(String code) {
+		int i = 0;
+		while (i < code.length()) {
+			int chunk = Math.min(32, code.length() - i);
+			long bits = 0;
+			for (int j = 0; j < chunk; j++) {
+				char c = code.charAt(i + j);
+				if (c != '0' && c != '1')
+					throw new IllegalArgumentException("Code can only contain 0s and 1s: " + code);
+				bits = (bits << 1) | (c - '0');
+			}
+			writeBits(bits, chunk);
+			i += chunk;
+		}
+	}
+
+	/**
+	 * Pads with zeros up to the next byte boundary, so the next bit written starts a new byte.
+	 */
+	public void alignToByte() {
+		writeBits(0, (int) (-bitLength & 7));
+	}
+
+	/**
+	 * Appends every bit written to another writer, starting right after the last bit of this one,
+	 * which doesn't have to be on a byte boundary. This is how separately encoded blocks are stitched together.
+	 *
+	 * @param other writer whose bits are appended; it is not modified
+	 */
+	public void append(BitWriter other) {
+		if (other == this)
+			throw new IllegalArgumentException("Cannot append a writer to itself.");
+		if (pendingBits == 0) {
+			/* Word aligned: the flushed words can be copied as they are */
+			if (byteCount + other.byteCount > buffer.length)
+				reAllocate(byteCount + other.byteCount);
+			System.arraycopy(other.buffer, 0, buffer, byteCount, other.byteCount);
+			byteCount += other.byteCount;
+			bitLength += 8L * other.byteCount;
+		} else {
+			/* Not aligned: shift the flushed words in 32 bits at a time */
+			byte[] src = other.buffer;
+			for (int i = 0; i < other.byteCount; i += 4) {
+				int word = (src[i] & 0xFF) << 24 | (src[i + 1] & 0xFF) << 16 | (src[i + 2] & 0xFF) << 8 | (src[i + 3] & 0xFF);
+				writeBits(word & 0xFFFFFFFFL, 32);
+			}
+		}
+		writeBits(other.accumulator, other.pendingBits);
+	}
+
+	/**
+	 * @return exact number of bits written since the writer was created or last reset
+	 */
+	public long bitLength() {
+		return bitLength;
+	}
+
+	/**
+	 * @return number of bytes needed to hold every bit written, the last one padded with zeros
+	 */
+	public int byteLength() {
+		return (int) ((bitLength + 7) >>> 3);
+	}
+
+	/**
+	 * Returns a copy of the packed bits. The last byte is padded with zeros.
+	 * The writer is not modified, so more bits may be written afterwards.
+	 *
+	 * @return the packed bits
+	 */
+	public byte[] toByteArray() {
+		byte[] result = new byte[byteLength()];
+		System.arraycopy(buffer, 0, result, 0, byteCount);
+		copyPending(result, byteCount);
+		return result;
+	}
+
+	/**
+	 * Writes the packed bits into the given buffer, the last byte padded with zeros.
+	 *
+	 * @param out buffer with at least byteLength() bytes remaining
+	 */
+	public void writeTo(ByteBuffer out) {
+		out.put(buffer, 0, byteCount);
+		byte[] tail = new byte[4];
+		int tailBytes = copyPending(tail, 0);
+		out.put(tail, 0, tailBytes);
+	}
+
+	/**
+	 * Writes the packed bits to the given stream, the last byte padded with zeros.
+	 *
+	 * @param out stream that receives byteLength() bytes
+	 * @throws IOException if the stream fails
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, byteCount);
+		byte[] tail = new byte[4];
+		int tailBytes = copyPending(tail, 0);
+		out.write(tail, 0, tailBytes);
+	}
+
+	/**
+	 * Writes the bits that already fill whole words to the given stream and drops them from the writer,
+	 * keeping only the last few bits that don't. Lets a long message be streamed out without being held in memory;
+	 * bitLength() then counts only the bits still held, which keeps alignToByte() correct.
+	 *
+	 * @param out stream that receives the complete words
+	 * @throws IOException if the stream fails
+	 */
+	public void drainTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, byteCount);
+		byteCount = 0;
+		bitLength = pendingBits;
+	}
+
+	/**
+	 * Forgets every bit written so far, keeping the allocated buffer for reuse.
+	 */
+	public void reset() {
+		byteCount = 0;
+		accumulator = 0;
+		pendingBits = 0;
+		bitLength = 0;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void writeWord(int word) {
+		if (byteCount + 4 > buffer.length)
+			reAllocate(byteCount + 4);
+		buffer[byteCount] = (byte) (word >>> 24);
+		buffer[byteCount + 1] = (byte) (word >>> 16);
+		buffer[byteCount + 2] = (byte) (word >>> 8);
+		buffer[byteCount + 3] = (byte) word;
+		byteCount += 4;
+	}
+
+	/**
+	 * Copies the bits still waiting in the accumulator into dest, left aligned and padded with zeros
+	 *
+	 * @return number of bytes copied
+	 */
+	private int copyPending(byte[] dest, int offset) {
+		int bytes = (pendingBits + 7) >>> 3;
+		long aligned = accumulator << (64 - pendingBits);
+		for (int i = 0; i < bytes; i++)
+			dest[offset + i] = (byte) (aligned >>> (56 - 8 * i));
+		return bytes;
+	}
+
+	private void reAllocate(int minimum) {
+		int newLength = Math.max(minimum, 2 * buffer.length);
+		if (newLength < 0)
+			throw new IllegalStateException("Encoded message is too large for a single array");
+		byte[] newBuffer = new byte[newLength];
+		System.arraycopy(buffer, 0, newBuffer, 0, byteCount);
+		buffer = newBuffer;
+	}
+
+}
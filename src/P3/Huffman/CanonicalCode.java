@@ -0,0 +1,416 @@
+package P3.Huffman;
+
+import java.util.Arrays;
+
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Map.HashTable.HashTableOA;
+import P3.DataStructures.Map.HashTable.SimpleHashFunction;
+import P3.DataStructures.Tree.BTNode;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+
+import static P3.Huffman.HuffmanDecoder.MAX_CODE_LENGTH;
+
+/**
+ * Canonical Huffman code.
+ *
+ * A canonical code only depends on how long the code of every symbol is, not on the shape of the tree:
+ * symbols are sorted by (code length, symbol) and receive consecutive codes in that order,
+ * with the code incremented and shifted left every time the length grows.
+ *
+ * This means a message only has to carry the code lengths for the decoder to rebuild the exact same codes,
+ * and both the codes and the decoding order are rebuilt with a couple of passes over plain arrays.
+ * Calling setLengths() again with an alphabet of the same size reuses every array.
+ *
+ * The arrays are indexed by symbol, unless the symbols in use are few and spread over a large alphabet, like the
+ * code points of a text with one emoji (see SymbolRanks.isSparse()). Then they are indexed by the rank of the symbol,
+ * so they are as long as the number of symbols in use. The codes and the header are the same either way.
+ */
+public class CanonicalCode {
+
+	/** Enough for every Unicode code point */
+	public static final int MAX_ALPHABET_SIZE = 0x110000;
+
+	/** Enough for HuffmanDecoder.MAX_CODE_LENGTH */
+	private static final int LENGTH_BITS = 6;
+
+	// private fields
+	private int alphabetSize;       /* Number of entries of the arrays in use */
+	private SymbolRanks ranks;      /* Symbol of every index for a sparse code, null if indices are the symbols */
+	private byte[] lengths;         /* Indexed by symbol (or rank), 0 if the symbol has no code */
+	private long[] codes;           /* Indexed by symbol (or rank) */
+	private int[] sortedSymbols;    /* Coded symbols (or ranks) in canonical order: by length, then by symbol */
+	private int symbolCount;
+	private int maxLength;
+	private final long[] lengthCount = new long[MAX_CODE_LENGTH + 1];
+	private final long[] nextCode = new long[MAX_CODE_LENGTH + 2];
+
+	/**
+	 * Builds the canonical code for the given code lengths
+	 *
+	 * @param lengths code length of every symbol, indexed by symbol; 0 for symbols that do not appear
+	 */
+	public CanonicalCode(byte[] lengths) {
+		setLengths(lengths, lengths.length);
+	}
+
+	/**
+	 * Builds the canonical code of a sparse alphabet, with arrays indexed by rank
+	 *
+	 * @param lengths code length of every symbol in use, indexed by its rank
+	 * @param ranks the symbols in use
+	 */
+	public CanonicalCode(byte[] lengths, SymbolRanks ranks) {
+		if (lengths.length != ranks.size())
+			throw new IllegalArgumentException("There must be a code length for every ranked symbol.");
+		if (ranks.maxSymbol() >= MAX_ALPHABET_SIZE)
+			throw new IllegalArgumentException("Symbols must be below " + MAX_ALPHABET_SIZE);
+		build(lengths, lengths.length);
+		this.ranks = ranks;
+	}
+
+	/**
+	 * Rebuilds this code for new code lengths, reusing the current arrays when they are large enough.
+	 *
+	 * @param newLengths code length of every symbol, indexed by symbol; 0 for symbols that do not appear
+	 * @param newAlphabetSize how many entries of newLengths are used
+	 */
+	public void setLengths(byte[] newLengths, int newAlphabetSize) {
+		if (newAlphabetSize < 1 || newAlphabetSize > MAX_ALPHABET_SIZE || newAlphabetSize > newLengths.length)
+			throw new IllegalArgumentException("Alphabet size must be between 1 and " + MAX_ALPHABET_SIZE);
+		build(newLengths, newAlphabetSize);
+		ranks = null;
+	}
+
+	/**
+	 * Computes the codes of lengths indexed by symbol or by rank, which are the same since ranks keep the order of symbols
+	 */
+	private void build(byte[] newLengths, int newAlphabetSize) {
+		if (lengths == null || lengths.length < newAlphabetSize) {
+			lengths = new byte[newAlphabetSize];
+			codes = new long[newAlphabetSize];
+			sortedSymbols = new int[newAlphabetSize];
+		}
+		alphabetSize = newAlphabetSize;
+		if (newLengths != lengths)
+			System.arraycopy(newLengths, 0, lengths, 0, alphabetSize);
+
+		/* First pass: count how many codes there are of each length */
+		Arrays.fill(lengthCount, 0);
+		symbolCount = 0;
+		maxLength = 0;
+		for (int s = 0; s < alphabetSize; s++) {
+			int length = lengths[s];
+			if (length < 0 || length > MAX_CODE_LENGTH)
+				throw new IllegalArgumentException("Code lengths must be between 0 and " + MAX_CODE_LENGTH);
+			if (length > 0) {
+				lengthCount[length]++;
+				symbolCount++;
+				maxLength = Math.max(maxLength, length);
+			}
+		}
+		if (symbolCount == 0)
+			throw new IllegalArgumentException("At least one symbol needs a code.");
+
+		/* The lengths must satisfy the Kraft inequality, otherwise they can't form a prefix code */
+		long left = 1;
+		for (int length = 1; length <= maxLength; length++) {
+			left = (left << 1) - lengthCount[length];
+			if (left < 0)
+				throw new IllegalArgumentException("Code lengths are oversubscribed.");
+			if (left > symbolCount)
+				left = symbolCount; /* Can never go negative again, avoid overflowing on long codes */
+		}
+
+		/* Compute the first code of each length, and where that length starts in the canonical order */
+		long code = 0;
+		for (int length = 1; length <= maxLength; length++) {
+			code = (code + lengthCount[length - 1]) << 1;
+			nextCode[length] = code;
+		}
+		int start = 0;
+		for (int length = 1; length <= maxLength; length++) {
+			int count = (int) lengthCount[length];
+			lengthCount[length] = start; /* Reused as the next free position of this length */
+			start += count;
+		}
+
+		/* Second pass: hand out consecutive codes in increasing symbol order within each length */
+		for (int s = 0; s < alphabetSize; s++) {
+			int length = lengths[s];
+			if (length > 0) {
+				codes[s] = nextCode[length]++;
+				sortedSymbols[(int) lengthCount[length]++] = s;
+			}
+		}
+	}
+
+	/**
+	 * Computes the code lengths given by a Huffman tree (the depth of every leaf) and builds the canonical code for them.
+	 *
+	 * @param huffmanRoot root of a tree built by huffman_tree(), whose leaves hold single characters
+	 * @return the canonical code with the same code lengths as the tree
+	 */
+	public static CanonicalCode fromTree(BTNode<Integer, String> huffmanRoot) {
+		byte[] lengths = new byte[maxSymbol(huffmanRoot) + 1];
+		computeLengths(lengths, null, huffmanRoot);
+		return new CanonicalCode(lengths);
+	}
+
+	/**
+	 * Same as fromTree(huffmanRoot), but no code will be longer than maxLength bits (see LengthLimiter).
+	 *
+	 * @param huffmanRoot root of a tree built by huffman_tree(), whose leaves hold single characters
+	 * @param maxLength the longest code length allowed
+	 * @return the canonical code with the tree's code lengths, limited to maxLength
+	 */
+	public static CanonicalCode fromTree(BTNode<Integer, String> huffmanRoot, int maxLength) {
+		int alphabetSize = maxSymbol(huffmanRoot) + 1;
+		byte[] lengths = new byte[alphabetSize];
+		long[] frequencies = new long[alphabetSize];
+		computeLengths(lengths, frequencies, huffmanRoot);
+		LengthLimiter.limit(lengths, frequencies, alphabetSize, maxLength);
+		return new CanonicalCode(lengths);
+	}
+
+	/**
+	 * Builds the canonical code with the code lengths of a flattened Huffman tree.
+	 *
+	 * @param tree tree built by FlatHuffmanTree.build()
+	 * @return the canonical code with the same code lengths as the tree
+	 */
+	public static CanonicalCode fromTree(FlatHuffmanTree tree) {
+		if (SymbolRanks.isSparse(tree.maxSymbol() + 1, tree.leafCount()))
+			return new CanonicalCode(tree.leafCodeLengths(), ranksOf(tree));
+		return new CanonicalCode(tree.codeLengths(tree.maxSymbol() + 1));
+	}
+
+	/**
+	 * Same as fromTree(tree), but no code will be longer than maxLength bits (see LengthLimiter).
+	 *
+	 * @param tree tree built by FlatHuffmanTree.build()
+	 * @param maxLength the longest code length allowed
+	 * @return the canonical code with the tree's code lengths, limited to maxLength
+	 */
+	public static CanonicalCode fromTree(FlatHuffmanTree tree, int maxLength) {
+		if (SymbolRanks.isSparse(tree.maxSymbol() + 1, tree.leafCount())) {
+			int n = tree.leafCount();
+			byte[] lengths = tree.leafCodeLengths();
+			long[] frequencies = new long[n];
+			for (int leaf = 0; leaf < n; leaf++)
+				frequencies[leaf] = tree.getWeight(leaf);
+			LengthLimiter.limit(lengths, frequencies, n, maxLength);
+			return new CanonicalCode(lengths, ranksOf(tree));
+		}
+		int alphabetSize = tree.maxSymbol() + 1;
+		byte[] lengths = tree.codeLengths(alphabetSize);
+		LengthLimiter.limit(lengths, tree.frequencies(alphabetSize), alphabetSize, maxLength);
+		return new CanonicalCode(lengths);
+	}
+
+	/**
+	 * Writes the compact header that describes this code: the number of coded symbols (Elias gamma),
+	 * then for every coded symbol in increasing order the gap from the previous one (Elias gamma) and its length.
+	 *
+	 * @param out writer that receives the header
+	 */
+	public void writeHeader(BitWriter out) {
+		writeGamma(out, symbolCount);
+		int previous = -1;
+		for (int s = 0; s < alphabetSize; s++) {
+			if (lengths[s] > 0) {
+				int symbol = symbolAt(s);
+				writeGamma(out, symbol - previous);
+				out.writeBits(lengths[s], LENGTH_BITS);
+				previous = symbol;
+			}
+		}
+	}
+
+	/**
+	 * Reads a header written by writeHeader() and rebuilds the code it describes
+	 *
+	 * @param in reader positioned at the start of the header
+	 * @return the canonical code described by the header
+	 */
+	public static CanonicalCode readHeader(BitReader in) {
+		int count = readGamma(in);
+		if (count < 0 || count > MAX_ALPHABET_SIZE)
+			throw new IllegalArgumentException("Corrupt header, bad symbol count: " + count);
+		int[] symbols = new int[count];
+		byte[] symbolLengths = new byte[count];
+		int symbol = -1;
+		for (int i = 0; i < count; i++) {
+			symbol += readGamma(in);
+			if (symbol < 0 || symbol >= MAX_ALPHABET_SIZE)
+				throw new IllegalArgumentException("Symbol out of range in header: " + symbol);
+			symbols[i] = symbol;
+			symbolLengths[i] = (byte) in.readBits(LENGTH_BITS);
+		}
+		if (count > 0 && SymbolRanks.isSparse(symbol + 1, count))
+			return new CanonicalCode(symbolLengths, new SymbolRanks(symbols));
+		byte[] lengths = new byte[symbol + 1];
+		for (int i = 0; i < count; i++)
+			lengths[symbols[i]] = symbolLengths[i];
+		return new CanonicalCode(lengths);
+	}
+
+	/**
+	 * @return a HuffmanDecoder whose tables are built straight from the canonical arrays
+	 */
+	public HuffmanDecoder newDecoder() {
+		int[] codeLengths = new int[symbolCount];
+		long[] sortedCodes = new long[symbolCount];
+		int[] symbols = ranks == null ? sortedSymbols : new int[symbolCount];
+		for (int i = 0; i < symbolCount; i++) {
+			int s = sortedSymbols[i];
+			codeLengths[i] = lengths[s];
+			sortedCodes[i] = codes[s];
+			symbols[i] = symbolAt(s);
+		}
+		return new HuffmanDecoder(symbols, sortedCodes, codeLengths, symbolCount);
+	}
+
+	/**
+	 * Returns the codes as an EncodingTable. The table shares this code's arrays,
+	 * so it is only valid until setLengths() is called again.
+	 *
+	 * @return the encoding table of this code
+	 */
+	public EncodingTable getEncodingTable() {
+		return new EncodingTable(codes, lengths, alphabetSize, ranks);
+	}
+
+	/**
+	 * Converts the code to the same kind of map huffman_code() returns, so it can be used by encode() and process_results()
+	 *
+	 * @return map from every coded symbol (as the string of that code point) to its code as a string of 0s and 1s
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> ht = new HashTableOA<String, String>(Math.max(1, symbolCount), new SimpleHashFunction<String>());
+		for (int i = 0; i < symbolCount; i++) {
+			int s = sortedSymbols[i];
+			StringBuilder code = new StringBuilder();
+			for (int bit = lengths[s] - 1; bit >= 0; bit--)
+				code.append((codes[s] >>> bit) & 1);
+			ht.put(new String(Character.toChars(symbolAt(s))), code.toString());
+		}
+		return ht;
+	}
+
+	/**
+	 * @return one more than the largest symbol the code can have
+	 */
+	public int getAlphabetSize() {
+		return ranks == null ? alphabetSize : ranks.maxSymbol() + 1;
+	}
+	/**
+	 * @return the symbols in use if the arrays are indexed by rank, null if they are indexed by symbol
+	 */
+	public SymbolRanks getRanks() {
+		return ranks;
+	}
+	public int getSymbolCount() {
+		return symbolCount;
+	}
+	public int getMaxLength() {
+		return maxLength;
+	}
+	/**
+	 * @return length of the shortest code, the one of the first symbol in canonical order
+	 */
+	public int getMinLength() {
+		return lengths[sortedSymbols[0]];
+	}
+	public int getLength(int symbol) {
+		int index = indexOf(symbol);
+		return index < 0 ? 0 : lengths[index];
+	}
+	/**
+	 * @return the code of the symbol, right aligned, or 0 if it has none (like getLength())
+	 */
+	public long getCode(int symbol) {
+		int index = indexOf(symbol);
+		return index < 0 || lengths[index] == 0 ? 0 : codes[index];
+	}
+	/**
+	 * @param index position in canonical order, from 0 to getSymbolCount() - 1
+	 * @return the symbol at that position
+	 */
+	public int getSortedSymbol(int index) {
+		return symbolAt(sortedSymbols[index]);
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the index of a symbol in the arrays, or -1 if it has none
+	 */
+	private int indexOf(int symbol) {
+		if (ranks != null)
+			return ranks.rank(symbol);
+		return symbol >= 0 && symbol < alphabetSize ? symbol : -1;
+	}
+
+	/**
+	 * @return the symbol at an index of the arrays
+	 */
+	private int symbolAt(int index) {
+		return ranks == null ? index : ranks.symbol(index);
+	}
+
+	private static SymbolRanks ranksOf(FlatHuffmanTree tree) {
+		int[] symbols = new int[tree.leafCount()];
+		for (int leaf = 0; leaf < symbols.length; leaf++)
+			symbols[leaf] = tree.getSymbol(leaf);
+		return new SymbolRanks(symbols);
+	}
+
+	private static void computeLengths(byte[] lengths, long[] frequencies, BTNode<Integer, String> huffmanRoot) {
+		if (isLeaf(huffmanRoot)) {
+			/* A single symbol still needs one bit */
+			lengths[huffmanRoot.getValue().charAt(0)] = 1;
+			if (frequencies != null)
+				frequencies[huffmanRoot.getValue().charAt(0)] = huffmanRoot.getKey();
+		} else
+			computeLengths(lengths, frequencies, huffmanRoot, 0);
+	}
+
+	private static void computeLengths(byte[] lengths, long[] frequencies, BTNode<Integer, String> node, int depth) {
+		if (isLeaf(node)) {
+			/* Depths that don't fit in a byte are rejected by setLengths() or cut down by the LengthLimiter anyway */
+			int symbol = node.getValue().charAt(0);
+			lengths[symbol] = (byte) Math.min(depth, Byte.MAX_VALUE);
+			if (frequencies != null)
+				frequencies[symbol] = node.getKey();
+		} else {
+			computeLengths(lengths, frequencies, node.getLeftChild(), depth + 1);
+			computeLengths(lengths, frequencies, node.getRightChild(), depth + 1);
+		}
+	}
+
+	private static int maxSymbol(BTNode<Integer, String> node) {
+		if (isLeaf(node))
+			return node.getValue().charAt(0);
+		return Math.max(maxSymbol(node.getLeftChild()), maxSymbol(node.getRightChild()));
+	}
+
+	private static boolean isLeaf(BTNode<Integer, String> node) {
+		return node.getLeftChild() == null && node.getRightChild() == null;
+	}
+
+	private static void writeGamma(BitWriter out, int value) {
+		int bits = 32 - Integer.numberOfLeadingZeros(value);
+		out.writeBits(0, bits - 1);
+		out.writeBits(value, bits);
+	}
+
+	private static int readGamma(BitReader in) {
+		int zeros = 0;
+		while (!in.readBit()) {
+			if (++zeros > 30)  /* 31 zeros would overflow an int */
+				throw new IllegalArgumentException("Corrupt header.");
+		}
+		return (int) ((1L << zeros) | in.readBits(zeros));
+	}
+
+}
@@ -0,0 +1,309 @@
+package P3.Huffman;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Histogram.SparseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Metrics.CodeTableBuiltEvent;
+import P3.Metrics.Metrics;
+
+/**
+ * Bounded cache of built codes, for compressing many small messages with similar statistics.
+ *
+ * Building a code means a tree, a canonical code, an encoding table and decoder tables for every message, which costs
+ * more than encoding a short message. Instead, every histogram is reduced to a coarse fingerprint: the set of its (at
+ * most TOP_SYMBOLS) most frequent symbols that are common enough for a short code. Messages drawn from the same
+ * distribution nearly always share it while their rarer symbols come and go, and look up the same cached code.
+ * The cost check alone decides whether it's reused: it must encode the message within maxOverhead (a fraction, 0.05
+ * for 5%) of what the code the cache would build for the message costs. That cost is estimated without building
+ * anything: the entropy of the message times the ratio between the cached code's cost and the entropy on the message
+ * it was built for, since a code is above the entropy by about the same ratio for similar messages. Otherwise a code is
+ * built and replaces the cached one, from the message together with the counts the rejected code was built from, so
+ * short messages end up with a code for their distribution rather than for one sample of it.
+ *
+ * Codes are built with a floor under every symbol of the alphabet [0, alphabetSize), so a symbol the first messages
+ * didn't have still gets a (long) code and doesn't force a rebuild when a later message has it. Symbols above the
+ * alphabet only get a code if a message had them, and a cached code lacking one of them is never reused.
+ *
+ * The least recently used entry is evicted once the cache is full. All methods are thread safe; a missing code is built
+ * outside the lock, so lookups from other threads don't wait for it.
+ */
+public class CodeTableCache {
+
+	public static final int DEFAULT_CAPACITY = 256;
+	public static final double DEFAULT_MAX_OVERHEAD = 0.10;
+	public static final int DEFAULT_ALPHABET_SIZE = 256;
+
+	/* How many of the most frequent symbols make up the fingerprint */
+	private static final int TOP_SYMBOLS = 4;
+	/* Only symbols with a probability of at least 1/SHORT_CODE, which get a code of about 4 bits or less, are in it */
+	private static final int SHORT_CODE = 16;
+	/* The message weighs at least this many times the floor of the symbols it lacks */
+	private static final int FLOOR_SHARE = 16;
+	/* Past this many symbols, the counts of earlier messages are halved before a new message is added */
+	private static final long HISTORY = 1 << 16;
+
+	/**
+	 * A cached code with the tables built from it, so they are built once per code instead of once per message
+	 */
+	public static class Tables {
+		private final CanonicalCode code;
+		private final EncodingTable encodingTable;
+		private final double redundancy;  /* Cost over entropy on the histogram the code was built for */
+		private final Histogram counts;  /* Every message the code was built from, never changed once cached */
+		private HuffmanDecoder decoder;
+
+		private Tables(CanonicalCode code, Histogram histogram, Histogram counts) {
+			this.code = code;
+			this.counts = counts;
+			this.encodingTable = code.getEncodingTable();
+			int[] symbols = histogram.symbols();
+			this.redundancy = cost(code, histogram, symbols) / entropy(histogram, symbols);
+		}
+
+		public CanonicalCode getCode() {
+			return code;
+		}
+		public EncodingTable getEncodingTable() {
+			return encodingTable;
+		}
+		/**
+		 * @return the decoder for the code, built the first time it's needed
+		 */
+		public synchronized HuffmanDecoder getDecoder() {
+			if (decoder == null)
+				decoder = code.newDecoder();
+			return decoder;
+		}
+	}
+
+	// private fields
+	private final int capacity;
+	private final double maxOverhead;
+	private final int maxCodeLength;
+	private final int alphabetSize;
+	private final LinkedHashMap<Long, Tables> entries;  /* In access order, so the first entry is the least recently used */
+	private long hits, misses, rejections, evictions;
+
+	public CodeTableCache() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_OVERHEAD, HuffmanStream.MAX_CODE_LENGTH, DEFAULT_ALPHABET_SIZE);
+	}
+
+	/**
+	 * @param capacity largest number of codes kept
+	 * @param maxOverhead how much longer than with the code the cache would build for it a message may get with a
+	 *        cached code, as a fraction
+	 * @param maxCodeLength length limit of the codes built (see LengthLimiter)
+	 */
+	public CodeTableCache(int capacity, double maxOverhead, int maxCodeLength) {
+		this(capacity, maxOverhead, maxCodeLength, DEFAULT_ALPHABET_SIZE);
+	}
+
+	/**
+	 * @param capacity largest number of codes kept
+	 * @param maxOverhead how much longer than with the code the cache would build for it a message may get with a
+	 *        cached code, as a fraction
+	 * @param maxCodeLength length limit of the codes built (see LengthLimiter)
+	 * @param alphabetSize every symbol below it gets a code, even if the message it was built for didn't have it
+	 */
+	public CodeTableCache(int capacity, double maxOverhead, int maxCodeLength, int alphabetSize) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		if (!(maxOverhead >= 0))
+			throw new IllegalArgumentException("Overhead cannot be negative.");
+		if (alphabetSize < 1)
+			throw new IllegalArgumentException("Alphabet size must be at least 1");
+		if (maxCodeLength < 31 && alphabetSize > 1 << maxCodeLength)
+			throw new IllegalArgumentException("Codes of at most " + maxCodeLength + " bits cannot cover " + alphabetSize + " symbols.");
+		this.capacity = capacity;
+		this.maxOverhead = maxOverhead;
+		this.maxCodeLength = maxCodeLength;
+		this.alphabetSize = alphabetSize;
+		this.entries = new LinkedHashMap<Long, Tables>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns cached tables good enough for the histogram, or builds and caches new ones.
+	 *
+	 * @param histogram symbols of the message to encode, must not be empty
+	 * @return tables whose code covers every symbol of the histogram and of the alphabet
+	 */
+	public Tables get(Histogram histogram) {
+		if (histogram.isEmpty())
+			throw new IllegalArgumentException("Histogram cannot be empty.");
+		int[] symbols = histogram.symbols();
+		Long key = fingerprint(histogram, symbols);
+		Tables cached;
+		synchronized (this) {
+			cached = entries.get(key);
+			if (cached != null) {
+				double cost = cost(cached.code, histogram, symbols);
+				if (cost <= (1 + maxOverhead) * cached.redundancy * entropy(histogram, symbols)) {
+					hits++;
+					Metrics.cacheLookup(true);
+					return cached;
+				}
+				rejections++;
+			}
+			misses++;
+		}
+		Metrics.cacheLookup(false);
+		CodeTableBuiltEvent event = new CodeTableBuiltEvent();
+		event.begin();
+		Histogram counts = history(histogram, cached);
+		Tables built = new Tables(CanonicalCode.fromTree(FlatHuffmanTree.build(floored(counts, counts.symbols())), maxCodeLength), histogram, counts);
+		Metrics.codeBuilt(built.code.getSymbolCount(), built.code.getMaxLength());
+		event.finish("CodeTableCache", built.code.getSymbolCount(), built.code.getMaxLength(), maxCodeLength);
+		/* Another thread may have cached a code for the same fingerprint meanwhile, the newest one replaces it */
+		synchronized (this) {
+			entries.put(key, built);
+			if (entries.size() > capacity) {
+				Iterator<Long> eldest = entries.keySet().iterator();
+				eldest.next();
+				eldest.remove();
+				evictions++;
+			}
+		}
+		return built;
+	}
+
+	/**
+	 * Coarse fingerprint of a histogram: messages drawn from the same distribution nearly always get the same one
+	 *
+	 * @param histogram histogram to reduce
+	 * @return 64-bit hash of its most frequent symbols
+	 */
+	public static long fingerprint(Histogram histogram) {
+		return fingerprint(histogram, histogram.symbols());
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+	public synchronized long getMisses() {
+		return misses;
+	}
+	/**
+	 * @return number of lookups that found a code with the same fingerprint, but too costly for the message
+	 */
+	public synchronized long getRejections() {
+		return rejections;
+	}
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	public synchronized int size() {
+		return entries.size();
+	}
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Hashes the set of the TOP_SYMBOLS most frequent symbols, ties going to the lower symbol. Only the set counts, not
+	 * the order or the counts, which move from message to message; how well the code fits is left to the cost check.
+	 *
+	 * @param symbols the symbols of the histogram, in increasing order
+	 * @return FNV-1a hash of the most frequent symbols, in increasing order
+	 */
+	private static long fingerprint(Histogram histogram, int[] symbols) {
+		/* top[] is kept sorted by decreasing count, the scan is in increasing symbol order so ties keep the lower one */
+		int k = Math.min(TOP_SYMBOLS, symbols.length);
+		int[] top = new int[k];
+		long[] counts = new long[k];
+		int found = 0;
+		long total = histogram.total();
+		for (int symbol : symbols) {
+			long count = histogram.get(symbol);
+			if (count * SHORT_CODE < total || found == k && count <= counts[k - 1])
+				continue;
+			int i = found < k ? found++ : k - 1;
+			for (; i > 0 && counts[i - 1] < count; i--) {
+				top[i] = top[i - 1];
+				counts[i] = counts[i - 1];
+			}
+			top[i] = symbol;
+			counts[i] = count;
+		}
+		top = Arrays.copyOf(top, found);
+		Arrays.sort(top);
+		long hash = 0xCBF29CE484222325L;  /* FNV-1a */
+		for (int symbol : top)
+			hash = (hash ^ symbol) * 0x100000001B3L;
+		return hash;
+	}
+
+	/**
+	 * The counts a rebuilt code is built from: the message, plus every message the rejected code was built from, so the
+	 * code converges on the distribution of the messages with that fingerprint instead of fitting only the last one.
+	 * Halving the old counts once there are more than HISTORY keeps following a distribution that drifts.
+	 *
+	 * @param rejected code too costly for the message, or null if there was none
+	 */
+	private static Histogram history(Histogram histogram, Tables rejected) {
+		SparseHistogram counts = new SparseHistogram();
+		counts.merge(histogram);
+		if (rejected == null)
+			return counts;
+		Histogram old = rejected.counts;
+		int shift = old.total() > HISTORY ? 1 : 0;
+		for (int symbol : old.symbols())
+			counts.add(symbol, old.get(symbol) >> shift);
+		return counts;
+	}
+
+	/**
+	 * The histogram plus a count of one for every symbol of the alphabet it lacks. Its own counts are scaled up until
+	 * they weigh FLOOR_SHARE times the floor, so the code stays close to optimal for the message.
+	 */
+	private Histogram floored(Histogram histogram, int[] symbols) {
+		int absent = alphabetSize;
+		for (int symbol : symbols)
+			if (symbol < alphabetSize)
+				absent--;
+		long scale = Math.max(1, ((long) FLOOR_SHARE * absent + histogram.total() - 1) / histogram.total());
+		SparseHistogram floored = new SparseHistogram(absent + symbols.length);
+		for (int symbol : symbols)
+			floored.add(symbol, histogram.get(symbol) * scale);
+		for (int symbol = 0; symbol < alphabetSize; symbol++)
+			if (histogram.get(symbol) == 0)
+				floored.add(symbol, 1);
+		return floored;
+	}
+
+	/**
+	 * @return bits needed to encode the histogram with the code, or infinity if a symbol has no code
+	 */
+	private static double cost(CanonicalCode code, Histogram histogram, int[] symbols) {
+		long bits = 0;
+		for (int symbol : symbols) {
+			int length = code.getLength(symbol);
+			if (length == 0)
+				return Double.POSITIVE_INFINITY;
+			bits += histogram.get(symbol) * length;
+		}
+		return bits;
+	}
+
+	/**
+	 * @return Shannon entropy of the histogram times its total, the fewest bits any code can use.
+	 *         A single symbol still needs one bit per occurrence with a prefix code.
+	 */
+	private static double entropy(Histogram histogram, int[] symbols) {
+		long total = histogram.total();
+		if (histogram.distinctSymbols() == 1)
+			return total;
+		double bits = 0;
+		for (int symbol : symbols) {
+			long count = histogram.get(symbol);
+			bits += count * (Math.log((double) total / count) / Math.log(2));
+		}
+		return bits;
+	}
+
+}
@@ -0,0 +1,418 @@
+package P3.Huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+import P3.Metrics.BlockDecompressedEvent;
+import P3.Metrics.Metrics;
+import P3.Metrics.Stage;
+
+import static P3.Huffman.ContainerWriter.*;
+
+/**
+ * Reads files written by ContainerWriter.
+ *
+ * The index at the end of the file is loaded when the reader is opened, so any block can be decoded on its own:
+ * read(position, ...) decodes only the blocks that hold the requested bytes, and decompress(out, pool) decodes
+ * several blocks at once. If the container has sync points (see ContainerWriter.FLAG_SYNC_POINTS), read() starts
+ * decoding a block at the closest sync point before the requested bytes and stops after them, instead of decoding
+ * the whole block.
+ *
+ * Every block decoded whole is checked against its CRC32; corrupt data is reported with an IOException. Part of a
+ * block can't be checked, since the CRC covers the whole block.
+ *
+ * Blocks are read with positional reads, so one reader can be used by several threads at the same time.
+ */
+public class ContainerReader implements Closeable {
+
+	// private fields
+	private final FileChannel channel;
+	private final int flags;
+	private final int blockSize;
+	private final long size;
+	private final long indexOffset;
+	private final long[] blockOffsets;
+	private final long[] blockStarts;
+	private final int[] codeBlocks;
+	private int cachedCodeBlock = -1;  /* The last code read, since consecutive blocks usually share it */
+	private HuffmanDecoder cachedDecoder;
+
+	/**
+	 * Opens a container and loads its index.
+	 *
+	 * @param path file written by ContainerWriter
+	 * @throws IOException if the file can't be read, or isn't a valid container
+	 */
+	public ContainerReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = readFully(0, HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a Huffman container.");
+			int version = header.get();
+			if (version != VERSION)
+				throw new IOException("Unsupported container version: " + version);
+			flags = header.get() & 0xFF;
+			if ((flags & ~(FLAG_INTERLEAVED | FLAG_SYNC_POINTS)) != 0 || flags == (FLAG_INTERLEAVED | FLAG_SYNC_POINTS))
+				throw new IOException("Unknown container flags: " + flags);
+			blockSize = header.getInt();
+			if (blockSize < 1)
+				throw new IOException("Corrupt block size: " + blockSize);
+
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE + FOOTER_SIZE)
+				throw new IOException("Container is truncated.");
+			ByteBuffer footer = readFully(fileSize - FOOTER_SIZE, FOOTER_SIZE);
+			indexOffset = footer.getLong();
+			size = footer.getLong();
+			int indexCrc = footer.getInt();
+			if (footer.getInt() != INDEX_MAGIC)
+				throw new IOException("Container has no index; it may be truncated.");
+			if (indexOffset < HEADER_SIZE || indexOffset > fileSize - FOOTER_SIZE - 4)
+				throw new IOException("Corrupt index offset.");
+
+			ByteBuffer index = readFully(indexOffset, (int) (fileSize - FOOTER_SIZE - indexOffset));
+			CRC32 crc = new CRC32();
+			crc.update(index.duplicate());
+			if ((int) crc.getValue() != indexCrc)
+				throw new IOException("Corrupt index, checksum mismatch.");
+			int count = index.getInt();
+			if (count < 0 || index.remaining() != (long) count * INDEX_ENTRY_SIZE)
+				throw new IOException("Corrupt index, wrong number of blocks.");
+			blockOffsets = new long[count];
+			blockStarts = new long[count];
+			codeBlocks = new int[count];
+			for (int i = 0; i < count; i++) {
+				blockOffsets[i] = index.getLong();
+				blockStarts[i] = index.getLong();
+				codeBlocks[i] = index.getInt();
+				if (codeBlocks[i] < 0 || codeBlocks[i] > i || codeBlocks[codeBlocks[i]] != codeBlocks[i])
+					throw new IOException("Corrupt index, block " + i + " has no code.");
+				if (blockStarts[i] != (long) i * blockSize)
+					throw new IOException("Corrupt index, block " + i + " starts at the wrong offset.");
+			}
+			if (count > 0 ? size <= blockStarts[count - 1] || size - blockStarts[count - 1] > blockSize : size != 0)
+				throw new IOException("Corrupt index, wrong original size.");
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return size of the original data
+	 */
+	public long size() {
+		return size;
+	}
+	public int blockCount() {
+		return blockOffsets.length;
+	}
+	public int blockSize() {
+		return blockSize;
+	}
+	/**
+	 * @return whether blocks have sync points, so read() can decode part of a block
+	 */
+	public boolean hasSyncPoints() {
+		return (flags & FLAG_SYNC_POINTS) != 0;
+	}
+	/**
+	 * @param index number of a block
+	 * @return offset of the first byte of the block in the original data
+	 */
+	public long blockStart(int index) {
+		return blockStarts[index];
+	}
+	/**
+	 * @param index number of a block
+	 * @return number of original bytes in the block
+	 */
+	public int blockLength(int index) {
+		long end = index + 1 < blockStarts.length ? blockStarts[index + 1] : size;
+		return (int) (end - blockStarts[index]);
+	}
+
+	/**
+	 * Decodes one block.
+	 *
+	 * @param index number of the block
+	 * @param dest array that receives the original bytes of the block
+	 * @param offset where the first byte goes in dest; dest must have room for blockLength(index) bytes
+	 * @return number of bytes decoded
+	 * @throws IOException if the block can't be read or is corrupt
+	 */
+	public int readBlock(int index, byte[] dest, int offset) throws IOException {
+		int length = blockLength(index);
+		if (offset < 0 || offset + length > dest.length)
+			throw new IndexOutOfBoundsException();
+
+		BlockHeader header = readBlockHeader(index);
+		int packedLength = header.packedLength;
+		boolean newTable = header.newTable;
+		byte[] packed = new byte[packedLength];
+		readFully(blockOffsets[index] + BLOCK_HEADER_SIZE, ByteBuffer.wrap(packed));
+		BlockDecompressedEvent event = new BlockDecompressedEvent();
+		event.begin();
+		long start = Metrics.start();
+		BitReader in = new BitReader(packed);
+		try {
+			HuffmanDecoder decoder;
+			if (newTable) {
+				decoder = CanonicalCode.readHeader(in).newDecoder();
+				cache(index, decoder);
+			} else
+				decoder = decoderOf(codeBlocks[index]);
+
+			if ((flags & FLAG_INTERLEAVED) != 0) {
+				in.alignToByte();
+				InterleavedCodec.decode(decoder, packed, (int) (in.position() >>> 3), packedLength, dest, offset, offset + length);
+			} else {
+				if (hasSyncPoints())
+					in.alignToByte();
+				decoder.decode(in, dest, offset, offset + length);
+				in.checkEnd();
+			}
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt block " + index + ": " + e.getMessage(), e);
+		}
+		Metrics.stage(Stage.DECODE, start, packedLength, length, length);
+		event.finish("ContainerReader", packedLength, length, newTable, (flags & FLAG_INTERLEAVED) != 0);
+
+		CRC32 crc = new CRC32();
+		crc.update(dest, offset, length);
+		if ((int) crc.getValue() != header.checksum)
+			throw new IOException("Corrupt block " + index + ", checksum mismatch.");
+		return length;
+	}
+
+	/**
+	 * Reads original bytes starting at any position, decoding only the blocks that hold them.
+	 *
+	 * @param position offset in the original data of the first byte to read
+	 * @param dest array that receives the bytes
+	 * @param offset where the first byte goes in dest
+	 * @param length number of bytes to read
+	 * @return number of bytes read, fewer than length only at the end of the data, -1 if position is past the end
+	 * @throws IOException if a block can't be read or is corrupt
+	 */
+	public int read(long position, byte[] dest, int offset, int length) throws IOException {
+		if (position < 0 || offset < 0 || length < 0 || offset + length > dest.length)
+			throw new IndexOutOfBoundsException();
+		if (position >= size)
+			return length == 0 ? 0 : -1;
+		length = (int) Math.min(length, size - position);
+
+		byte[] block = null;
+		int done = 0;
+		while (done < length) {
+			int index = (int) ((position + done) / blockSize);
+			int inBlock = (int) (position + done - blockStarts[index]);
+			int blockLength = blockLength(index);
+			int chunk = Math.min(length - done, blockLength - inBlock);
+			if (inBlock == 0 && chunk == blockLength)
+				readBlock(index, dest, offset + done);  /* Whole block, decode in place */
+			else if (hasSyncPoints())
+				readRange(index, inBlock, dest, offset + done, chunk);
+			else {
+				if (block == null)
+					block = new byte[largestBlock()];
+				readBlock(index, block, 0);
+				System.arraycopy(block, inBlock, dest, offset + done, chunk);
+			}
+			done += chunk;
+		}
+		return length;
+	}
+
+	/**
+	 * Decodes every block in order into the output stream, which is not closed.
+	 *
+	 * @param out stream that receives the original data
+	 * @return number of bytes written
+	 * @throws IOException if the container is corrupt or the stream fails
+	 */
+	public long decompress(OutputStream out) throws IOException {
+		byte[] block = new byte[largestBlock()];
+		for (int i = 0; i < blockCount(); i++)
+			out.write(block, 0, readBlock(i, block, 0));
+		out.flush();
+		return size;
+	}
+
+	/**
+	 * Decodes blocks in parallel, a batch of a few blocks per thread at a time, and writes them in order
+	 * into the output stream, which is not closed.
+	 *
+	 * @param out stream that receives the original data
+	 * @param pool pool that decodes the blocks
+	 * @return number of bytes written
+	 * @throws IOException if the container is corrupt or the stream fails
+	 */
+	public long decompress(OutputStream out, ForkJoinPool pool) throws IOException {
+		int batch = Math.min(2 * pool.getParallelism(), blockCount());
+		byte[][] blocks = new byte[batch][largestBlock()];
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ForkJoinTask<Integer>[] tasks = new ForkJoinTask[batch];
+		for (int first = 0; first < blockCount(); first += batch) {
+			int count = Math.min(batch, blockCount() - first);
+			for (int i = 0; i < count; i++) {
+				int index = first + i;
+				byte[] block = blocks[i];
+				tasks[i] = pool.submit(() -> readBlock(index, block, 0));
+			}
+			for (int i = 0; i < count; i++)
+				out.write(blocks[i], 0, join(tasks[i]));
+		}
+		out.flush();
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return length of the first block, which is the largest one; smaller than blockSize when there is a single block
+	 */
+	private int largestBlock() {
+		return blockCount() == 0 ? 0 : blockLength(0);
+	}
+
+	/**
+	 * The fields of a block header that aren't in the index
+	 */
+	private static class BlockHeader {
+		private boolean newTable;
+		private int packedLength;
+		private int checksum;
+	}
+
+	/**
+	 * Reads the header of a block and checks it against the index; the packed codes must fit before the next block
+	 */
+	private BlockHeader readBlockHeader(int index) throws IOException {
+		ByteBuffer buffer = readFully(blockOffsets[index], BLOCK_HEADER_SIZE);
+		BlockHeader header = new BlockHeader();
+		header.newTable = (buffer.get() & BLOCK_NEW_TABLE) != 0;
+		int storedLength = buffer.getInt();
+		header.packedLength = buffer.getInt();
+		header.checksum = buffer.getInt();
+		long end = index + 1 < blockOffsets.length ? blockOffsets[index + 1] : indexOffset;
+		if (storedLength != blockLength(index) || header.packedLength < 0
+				|| header.packedLength > end - blockOffsets[index] - BLOCK_HEADER_SIZE
+				|| header.newTable != (codeBlocks[index] == index))
+			throw new IOException("Corrupt header in block " + index);
+		return header;
+	}
+
+	/**
+	 * Decodes bytes [from, from + length) of a block, starting at the closest sync point before them
+	 */
+	private void readRange(int index, int from, byte[] dest, int offset, int length) throws IOException {
+		BlockHeader header = readBlockHeader(index);
+		byte[] packed = new byte[header.packedLength];
+		readFully(blockOffsets[index] + BLOCK_HEADER_SIZE, ByteBuffer.wrap(packed));
+		SyncPointIndex syncPoints = readSyncPoints(index, blockOffsets[index] + BLOCK_HEADER_SIZE + header.packedLength);
+		BlockDecompressedEvent event = new BlockDecompressedEvent();
+		event.begin();
+		long start = Metrics.start();
+		try {
+			BitReader in = new BitReader(packed);
+			HuffmanDecoder decoder;
+			if (header.newTable) {
+				decoder = CanonicalCode.readHeader(in).newDecoder();
+				cache(index, decoder);
+			} else
+				decoder = decoderOf(codeBlocks[index]);
+			in.alignToByte();
+			int codes = (int) (in.position() >>> 3);
+			new SeekableDecoder(decoder, syncPoints, packed, codes, packed.length - codes).read(from, dest, offset, length);
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt block " + index + ": " + e.getMessage(), e);
+		}
+		Metrics.stage(Stage.DECODE, start, header.packedLength, length, length);
+		event.finish("ContainerReader", header.packedLength, length, header.newTable, false);
+	}
+
+	/**
+	 * Reads the sync points stored after the codes of a block
+	 */
+	private SyncPointIndex readSyncPoints(int index, long position) throws IOException {
+		ByteBuffer head = readFully(position, SyncPointIndex.HEADER_SIZE);
+		int interval = head.getInt();
+		long symbolCount = head.getLong();
+		if (interval < 1 || symbolCount != blockLength(index))
+			throw new IOException("Corrupt sync points in block " + index);
+		long byteLength = SyncPointIndex.HEADER_SIZE + 8 * ((symbolCount + interval - 1) / interval);
+		if (byteLength > Integer.MAX_VALUE)
+			throw new IOException("Corrupt sync points in block " + index);
+		ByteBuffer syncPoints = readFully(position, (int) byteLength);
+		return SyncPointIndex.readFrom(new DataInputStream(new ByteArrayInputStream(syncPoints.array())));
+	}
+
+	private synchronized void cache(int codeBlock, HuffmanDecoder decoder) {
+		cachedCodeBlock = codeBlock;
+		cachedDecoder = decoder;
+	}
+
+	/**
+	 * Returns the decoder of the code stored in the given block, reading its header if it isn't the cached one
+	 */
+	private HuffmanDecoder decoderOf(int codeBlock) throws IOException {
+		synchronized (this) {
+			if (cachedCodeBlock == codeBlock)
+				return cachedDecoder;
+		}
+		byte[] packed = new byte[readBlockHeader(codeBlock).packedLength];
+		readFully(blockOffsets[codeBlock] + BLOCK_HEADER_SIZE, ByteBuffer.wrap(packed));
+		HuffmanDecoder decoder = CanonicalCode.readHeader(new BitReader(packed)).newDecoder();
+		cache(codeBlock, decoder);
+		return decoder;
+	}
+
+	private ByteBuffer readFully(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		readFully(position, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	private void readFully(long position, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new EOFException("Container is truncated.");
+			position += read;
+		}
+	}
+
+	private static int join(ForkJoinTask<Integer> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while decoding.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+}
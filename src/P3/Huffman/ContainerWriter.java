@@ -0,0 +1,330 @@
+package P3.Huffman;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Metrics.BlockCompressedEvent;
+import P3.Metrics.CodeTableBuiltEvent;
+import P3.Metrics.Metrics;
+import P3.Metrics.Stage;
+
+/**
+ * Writes the Huffman container file format, read back by ContainerReader.
+ *
+ * Everything written to this stream is cut into blocks of blockSize bytes that can be decoded independently of each other.
+ * All numbers are big endian:
+ *
+ *   header  int MAGIC, byte VERSION, byte flags, int blockSize
+ *   blocks  byte   BLOCK_NEW_TABLE if the block carries its own code, 0 if it reuses the code of the last block that did
+ *           int    number of bytes in the block
+ *           int    number of bytes of packed bits that follow
+ *           int    CRC32 of the original bytes of the block
+ *           bits   the code length header (only with BLOCK_NEW_TABLE, see CanonicalCode.writeHeader()), then the codes,
+ *                  as a single bit stream or, with FLAG_INTERLEAVED, as 4 interleaved streams (see InterleavedCodec).
+ *                  With FLAG_SYNC_POINTS the codes start at the byte after the code length header.
+ *           sync   only with FLAG_SYNC_POINTS: the SyncPointIndex of the codes (see SyncPointIndex.writeTo()),
+ *                  with bit offsets from the first byte of the codes
+ *   index   int    number of blocks, then for every block:
+ *           long   file offset of the block, long offset of its first byte in the original data,
+ *           int    number of the block that holds its code
+ *   footer  long   file offset of the index, long size of the original data, int CRC32 of the index, int INDEX_MAGIC
+ *
+ * The footer has a fixed size, so a reader finds the index from the end of the file and can jump straight to any block,
+ * or hand different blocks to different threads. With sync points, a reader can also start decoding inside a block,
+ * so reading a few bytes only decodes from the closest sync point before them. A block only reuses the previous code when that costs fewer bits
+ * than a new code plus its header, which is common for homogeneous data like logs.
+ *
+ * The file is complete only once close() has written the index; abort() leaves it without one.
+ */
+public class ContainerWriter extends OutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+	/** Blocks are split into 4 interleaved streams, which decode faster */
+	public static final int FLAG_INTERLEAVED = 1;
+	/** Every block ends with a SyncPointIndex, so it can be decoded from the middle; set by a sync interval */
+	public static final int FLAG_SYNC_POINTS = 2;
+
+	static final int MAGIC = 0x48554643;       /* "HUFC" */
+	static final int INDEX_MAGIC = 0x48554658; /* "HUFX" */
+	static final int VERSION = 1;
+	static final int BLOCK_NEW_TABLE = 1;
+	static final int HEADER_SIZE = 10;
+	static final int BLOCK_HEADER_SIZE = 13;
+	static final int INDEX_ENTRY_SIZE = 20;
+	static final int FOOTER_SIZE = 24;
+
+	// private fields
+	private final DataOutputStream out;
+	private final int blockSize;
+	private final int flags;
+	private final int syncInterval;
+	private final byte[] block;
+	private int blockLength;
+	private final BitWriter bits;
+	private final BitWriter headerBits = new BitWriter();
+	private final CRC32 crc = new CRC32();
+	private CanonicalCode code;  /* Code of the last block with BLOCK_NEW_TABLE */
+	private int codeBlock = -1;
+	private long position;       /* Bytes written to the underlying stream */
+	private long originalSize;
+	private long[] blockOffsets = new long[16];
+	private long[] blockStarts = new long[16];
+	private int[] codeBlocks = new int[16];
+	private int blockCount;
+	private boolean closed;
+
+	public ContainerWriter(OutputStream out) throws IOException {
+		this(out, DEFAULT_BLOCK_SIZE, 0);
+	}
+
+	/**
+	 * @param out stream that receives the container; it is closed by close()
+	 * @param blockSize number of original bytes in every block but the last one
+	 * @param flags 0, or FLAG_INTERLEAVED
+	 * @throws IOException if the header can't be written
+	 */
+	public ContainerWriter(OutputStream out, int blockSize, int flags) throws IOException {
+		this(out, blockSize, flags, 0);
+	}
+
+	/**
+	 * @param out stream that receives the container; it is closed by close()
+	 * @param blockSize number of original bytes in every block but the last one
+	 * @param flags 0, or FLAG_INTERLEAVED
+	 * @param syncInterval number of bytes between two sync points in every block (see SyncPointIndex), 0 for none
+	 * @throws IOException if the header can't be written
+	 */
+	public ContainerWriter(OutputStream out, int blockSize, int flags, int syncInterval) throws IOException {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1");
+		if ((flags & ~FLAG_INTERLEAVED) != 0)
+			throw new IllegalArgumentException("Unknown container flags: " + flags);
+		if (syncInterval < 0)
+			throw new IllegalArgumentException("Sync interval cannot be negative.");
+		if (syncInterval > 0 && (flags & FLAG_INTERLEAVED) != 0)
+			throw new IllegalArgumentException("Sync points need a single bit stream, they can't be used with FLAG_INTERLEAVED.");
+		if (syncInterval > 0)
+			flags |= FLAG_SYNC_POINTS;
+		this.out = new DataOutputStream(out);
+		this.blockSize = blockSize;
+		this.flags = flags;
+		this.syncInterval = syncInterval;
+		this.block = new byte[blockSize];
+		this.bits = new BitWriter(blockSize / 2 + 64);
+
+		this.out.writeInt(MAGIC);
+		this.out.writeByte(VERSION);
+		this.out.writeByte(flags);
+		this.out.writeInt(blockSize);
+		position = HEADER_SIZE;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		block[blockLength++] = (byte) b;
+		if (blockLength == blockSize)
+			writeBlock();
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		ensureOpen();
+		if (offset < 0 || length < 0 || offset + length > data.length)
+			throw new IndexOutOfBoundsException();
+		while (length > 0) {
+			int chunk = Math.min(length, blockSize - blockLength);
+			System.arraycopy(data, offset, block, blockLength, chunk);
+			blockLength += chunk;
+			offset += chunk;
+			length -= chunk;
+			if (blockLength == blockSize)
+				writeBlock();
+		}
+	}
+
+	/**
+	 * Flushes the underlying stream. The pending partial block is not written, since every block
+	 * but the last one must be full for the index to map original offsets to blocks.
+	 */
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Writes the last block, the index and the footer, then closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		if (blockLength > 0)
+			writeBlock();
+		writeIndex();
+		closed = true;
+		out.close();
+	}
+
+	/**
+	 * Closes the underlying stream without writing the last block, the index or the footer, so what was written
+	 * is not a valid container. Use it instead of close() when the data could not be written completely.
+	 *
+	 * @throws IOException if the underlying stream fails to close
+	 */
+	public void abort() throws IOException {
+		closed = true;
+		out.close();
+	}
+
+	/**
+	 * @return number of blocks written so far
+	 */
+	public int blockCount() {
+		return blockCount;
+	}
+
+	/**
+	 * @return number of bytes of the container written so far
+	 */
+	public long compressedSize() {
+		return position;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void writeBlock() throws IOException {
+		BlockCompressedEvent blockEvent = new BlockCompressedEvent();
+		blockEvent.begin();
+		long start = Metrics.start();
+		DenseHistogram histogram = FrequencyCounter.countBytes(block, 0, blockLength);
+		Metrics.stage(Stage.COMPUTE_FD, start, blockLength, 0, blockLength);
+
+		CodeTableBuiltEvent tableEvent = new CodeTableBuiltEvent();
+		tableEvent.begin();
+		start = Metrics.start();
+		FlatHuffmanTree tree = FlatHuffmanTree.build(histogram);
+		Metrics.stage(Stage.HUFFMAN_TREE, start, 0, 0, tree.leafCount());
+
+		start = Metrics.start();
+		CanonicalCode newCode = CanonicalCode.fromTree(tree, HuffmanStream.MAX_CODE_LENGTH);
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, newCode.getSymbolCount());
+		Metrics.codeBuilt(newCode.getSymbolCount(), newCode.getMaxLength());
+		tableEvent.finish("ContainerWriter", newCode.getSymbolCount(), newCode.getMaxLength(), HuffmanStream.MAX_CODE_LENGTH);
+
+		/* Keep the previous code if it covers every symbol and costs no more than a new code with its header */
+		headerBits.reset();
+		newCode.writeHeader(headerBits);
+		boolean newTable = code == null || cost(code, histogram) > cost(newCode, histogram) + headerBits.bitLength();
+
+		start = Metrics.start();
+		bits.reset();
+		if (newTable) {
+			code = newCode;
+			codeBlock = blockCount;
+			bits.append(headerBits);
+		}
+		SyncPointIndex syncPoints = null;
+		if ((flags & FLAG_INTERLEAVED) != 0)
+			InterleavedCodec.encode(code.getEncodingTable(), block, 0, blockLength, bits);
+		else if (syncInterval > 0) {
+			bits.alignToByte();
+			syncPoints = SyncPointIndex.encode(code.getEncodingTable(), block, 0, blockLength, bits, syncInterval);
+		} else
+			code.getEncodingTable().encode(block, 0, blockLength, bits);
+		Metrics.stage(Stage.ENCODE, start, blockLength, bits.byteLength(), blockLength);
+		blockEvent.finish("ContainerWriter", blockLength, bits.bitLength(), code.getSymbolCount(), code.getMinLength(), code.getMaxLength(),
+				newTable, (flags & FLAG_INTERLEAVED) != 0);
+
+		crc.reset();
+		crc.update(block, 0, blockLength);
+		addToIndex();
+
+		out.writeByte(newTable ? BLOCK_NEW_TABLE : 0);
+		out.writeInt(blockLength);
+		out.writeInt(bits.byteLength());
+		out.writeInt((int) crc.getValue());
+		bits.writeTo(out);
+		position += BLOCK_HEADER_SIZE + bits.byteLength();
+		if (syncPoints != null) {
+			syncPoints.writeTo(out);
+			position += syncPoints.byteLength();
+		}
+
+		originalSize += blockLength;
+		blockLength = 0;
+	}
+
+	private void addToIndex() {
+		if (blockCount == blockOffsets.length) {
+			blockOffsets = Arrays.copyOf(blockOffsets, 2 * blockCount);
+			blockStarts = Arrays.copyOf(blockStarts, 2 * blockCount);
+			codeBlocks = Arrays.copyOf(codeBlocks, 2 * blockCount);
+		}
+		blockOffsets[blockCount] = position;
+		blockStarts[blockCount] = originalSize;
+		codeBlocks[blockCount] = codeBlock;
+		blockCount++;
+	}
+
+	private void writeIndex() throws IOException {
+		long indexOffset = position;
+		crc.reset();
+		byte[] entry = new byte[INDEX_ENTRY_SIZE];
+		writeInt(entry, 0, blockCount);
+		out.write(entry, 0, 4);
+		crc.update(entry, 0, 4);
+		for (int i = 0; i < blockCount; i++) {
+			writeLong(entry, 0, blockOffsets[i]);
+			writeLong(entry, 8, blockStarts[i]);
+			writeInt(entry, 16, codeBlocks[i]);
+			out.write(entry);
+			crc.update(entry);
+		}
+		position += 4 + (long) INDEX_ENTRY_SIZE * blockCount;
+
+		out.writeLong(indexOffset);
+		out.writeLong(originalSize);
+		out.writeInt((int) crc.getValue());
+		out.writeInt(INDEX_MAGIC);
+		position += FOOTER_SIZE;
+	}
+
+	/**
+	 * @return number of bits needed to encode the histogram with the code, or Long.MAX_VALUE if a symbol has no code
+	 */
+	private static long cost(CanonicalCode code, DenseHistogram histogram) {
+		long total = 0;
+		for (int s = 0; s < histogram.alphabetSize(); s++) {
+			long count = histogram.get(s);
+			if (count == 0)
+				continue;
+			int length = code.getLength(s);
+			if (length == 0)
+				return Long.MAX_VALUE;
+			total += count * length;
+		}
+		return total;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("Container is closed.");
+	}
+
+	private static void writeInt(byte[] dest, int offset, int value) {
+		for (int i = 0; i < 4; i++)
+			dest[offset + i] = (byte) (value >>> (24 - 8 * i));
+	}
+
+	private static void writeLong(byte[] dest, int offset, long value) {
+		for (int i = 0; i < 8; i++)
+			dest[offset + i] = (byte) (value >>> (56 - 8 * i));
+	}
+
+}
@@ -0,0 +1,369 @@
+package P3.Huffman;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic source of synthetic input, for scaling and entropy sweeps.
+ *
+ * Symbols are drawn from 0 to alphabetSize - 1 with the chosen Distribution. The same distribution, alphabet size,
+ * parameter and seed always give the same symbols, so a run can be repeated exactly; reset() starts over.
+ * Random symbols are drawn in constant time with an alias table (Vose's method), so even alphabets of a million
+ * symbols cost two random numbers per symbol.
+ *
+ * Symbols come out as ints, as bytes (alphabets up to 256), as chars (up to 65536, symbol s is the char s) or as an
+ * InputStream of any length, so a corpus can go straight into HuffmanStream.compress() without touching the disk.
+ */
+public class CorpusGenerator {
+
+	public enum Distribution {
+		/** Every symbol equally likely, the highest entropy */
+		UNIFORM,
+		/** Symbol i with probability proportional to 1 / (i + 1)^s; the parameter is s, 1.0 by default, like words in text */
+		ZIPF,
+		/** Symbol i with probability proportional to r^i; the parameter is r, between 0 and 1, 0.5 by default */
+		GEOMETRIC,
+		/** Only symbol 0, the one symbol tree */
+		SINGLE_SYMBOL,
+		/**
+		 * Symbol i appears exactly F(i + 1) times (1, 1, 2, 3, 5, ...) in every period of F(alphabetSize + 2) - 1 symbols,
+		 * spread over the period. Those counts give the deepest Huffman tree an alphabet can have, alphabetSize - 1 levels,
+		 * so pick the alphabet size to get the depth, and make the input at least a period long.
+		 */
+		FIBONACCI
+	}
+
+	public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+	public static final double DEFAULT_GEOMETRIC_RATIO = 0.5;
+	/** Largest FIBONACCI alphabet, so a period still fits a long */
+	public static final int MAX_FIBONACCI_ALPHABET = 88;
+
+	// private fields
+	private final Distribution distribution;
+	private final int alphabetSize;
+	private final double parameter;
+	private final long seed;
+	private final double[] probabilities;
+	/* Alias table: symbol i is kept with probability threshold[i], replaced by alias[i] otherwise */
+	private double[] threshold;
+	private int[] alias;
+	/* FIBONACCI: cumulative counts over a period, and a walk through the period that visits every position once */
+	private long[] cumulative;
+	private long period, stride, position;
+	private SplittableRandom random;
+
+	/**
+	 * @param distribution how symbols are distributed
+	 * @param alphabetSize number of possible symbols
+	 * @param seed seed of the random symbols (and of the order of a FIBONACCI period)
+	 */
+	public CorpusGenerator(Distribution distribution, int alphabetSize, long seed) {
+		this(distribution, alphabetSize, distribution == Distribution.GEOMETRIC ? DEFAULT_GEOMETRIC_RATIO : DEFAULT_ZIPF_EXPONENT, seed);
+	}
+
+	/**
+	 * @param distribution how symbols are distributed
+	 * @param alphabetSize number of possible symbols
+	 * @param parameter exponent of ZIPF or ratio of GEOMETRIC, ignored by the others
+	 * @param seed seed of the random symbols (and of the order of a FIBONACCI period)
+	 */
+	public CorpusGenerator(Distribution distribution, int alphabetSize, double parameter, long seed) {
+		if (alphabetSize < 1 || alphabetSize > CanonicalCode.MAX_ALPHABET_SIZE)
+			throw new IllegalArgumentException("Alphabet size must be between 1 and " + CanonicalCode.MAX_ALPHABET_SIZE);
+		if (distribution == Distribution.ZIPF && !(parameter > 0))
+			throw new IllegalArgumentException("Zipf exponent must be positive.");
+		if (distribution == Distribution.GEOMETRIC && !(parameter > 0 && parameter <= 1))
+			throw new IllegalArgumentException("Geometric ratio must be above 0 and at most 1.");
+		if (distribution == Distribution.FIBONACCI && alphabetSize > MAX_FIBONACCI_ALPHABET)
+			throw new IllegalArgumentException("Fibonacci alphabets go up to " + MAX_FIBONACCI_ALPHABET + " symbols.");
+		this.distribution = distribution;
+		this.alphabetSize = alphabetSize;
+		this.parameter = parameter;
+		this.seed = seed;
+		this.probabilities = new double[alphabetSize];
+		if (distribution == Distribution.FIBONACCI)
+			buildPeriod();
+		else {
+			weigh();
+			buildAliasTable();
+		}
+		reset();
+	}
+
+	/**
+	 * Starts over, so the next symbols are the same as the first ones
+	 */
+	public void reset() {
+		random = new SplittableRandom(seed);
+		if (distribution == Distribution.FIBONACCI) {
+			/* Any stride without a common factor with the period visits every position once per period */
+			do
+				stride = 1 + random.nextLong(period);
+			while (period > 1 && gcd(stride, period) != 1);
+			position = random.nextLong(period);
+		}
+	}
+
+	/**
+	 * @return the next symbol, from 0 to alphabetSize - 1
+	 */
+	public int nextSymbol() {
+		switch (distribution) {
+		case SINGLE_SYMBOL:
+			return 0;
+		case FIBONACCI:
+			position += stride;
+			if (position >= period)
+				position -= period;
+			return fibonacciSymbol(position);
+		default:
+			int i = random.nextInt(alphabetSize);
+			return random.nextDouble() < threshold[i] ? i : alias[i];
+		}
+	}
+
+	/**
+	 * Fills dest[from, to) with the next symbols
+	 */
+	public void nextSymbols(int[] dest, int from, int to) {
+		for (int i = from; i < to; i++)
+			dest[i] = nextSymbol();
+	}
+
+	/**
+	 * Fills dest[from, to) with the next symbols, one per byte
+	 */
+	public void nextBytes(byte[] dest, int from, int to) {
+		if (alphabetSize > 256)
+			throw new IllegalArgumentException("Symbols don't fit a byte, the alphabet has " + alphabetSize);
+		for (int i = from; i < to; i++)
+			dest[i] = (byte) nextSymbol();
+	}
+
+	/**
+	 * @param length number of symbols
+	 * @return the next symbols, one per byte
+	 */
+	public byte[] bytes(int length) {
+		byte[] data = new byte[length];
+		nextBytes(data, 0, length);
+		return data;
+	}
+
+	/**
+	 * @param length number of symbols
+	 * @return the next symbols, symbol s being the char s
+	 */
+	public String text(int length) {
+		if (alphabetSize > 1 << 16)
+			throw new IllegalArgumentException("Symbols don't fit a char, the alphabet has " + alphabetSize);
+		char[] text = new char[length];
+		for (int i = 0; i < length; i++)
+			text[i] = (char) nextSymbol();
+		return new String(text);
+	}
+
+	/**
+	 * Stream of the next length symbols, one per byte. Reading it draws them from this generator.
+	 *
+	 * @param length number of bytes in the stream
+	 * @return the stream, e.g. for HuffmanStream.compress()
+	 */
+	public InputStream newInputStream(long length) {
+		if (alphabetSize > 256)
+			throw new IllegalArgumentException("Symbols don't fit a byte, the alphabet has " + alphabetSize);
+		if (length < 0)
+			throw new IllegalArgumentException("Length cannot be negative.");
+		return new InputStream() {
+			private long remaining = length;
+
+			@Override
+			public int read() {
+				if (remaining == 0)
+					return -1;
+				remaining--;
+				return nextSymbol();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0)
+					return 0;
+				if (remaining == 0)
+					return -1;
+				int count = (int) Math.min(len, remaining);
+				nextBytes(b, off, off + count);
+				remaining -= count;
+				return count;
+			}
+
+			@Override
+			public long skip(long n) {
+				long count = Math.max(0, Math.min(n, remaining));
+				for (long i = 0; i < count; i++)
+					nextSymbol();
+				remaining -= count;
+				return count;
+			}
+
+			@Override
+			public int available() {
+				return (int) Math.min(Integer.MAX_VALUE, remaining);
+			}
+		};
+	}
+
+	/**
+	 * @return probability of every symbol, the exact frequencies of a period for FIBONACCI
+	 */
+	public double[] probabilities() {
+		return probabilities.clone();
+	}
+
+	/**
+	 * @return Shannon entropy of the distribution, in bits per symbol
+	 */
+	public double entropy() {
+		double bits = 0;
+		for (double p : probabilities)
+			if (p > 0)
+				bits -= p * (Math.log(p) / Math.log(2));
+		return bits;
+	}
+
+	public Distribution getDistribution() {
+		return distribution;
+	}
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+	public double getParameter() {
+		return parameter;
+	}
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Writes a corpus from the command line, one symbol per byte:
+	 *
+	 *   java P3.Huffman.CorpusGenerator distribution alphabetSize length seed output
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 5) {
+			System.out.println("Usage: CorpusGenerator UNIFORM|ZIPF|GEOMETRIC|SINGLE_SYMBOL|FIBONACCI alphabetSize length seed output");
+			return;
+		}
+		CorpusGenerator generator = new CorpusGenerator(Distribution.valueOf(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[3]));
+		try (InputStream in = generator.newInputStream(Long.parseLong(args[2]));
+				OutputStream out = new FileOutputStream(args[4])) {
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				out.write(buffer, 0, read);
+		}
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void weigh() {
+		double sum = 0;
+		for (int i = 0; i < alphabetSize; i++) {
+			double weight;
+			switch (distribution) {
+			case ZIPF:
+				weight = Math.pow(i + 1, -parameter);
+				break;
+			case GEOMETRIC:
+				/* Computed from the exponent so long alphabets underflow to 0 instead of accumulating errors */
+				weight = Math.pow(parameter, i);
+				break;
+			case SINGLE_SYMBOL:
+				weight = i == 0 ? 1 : 0;
+				break;
+			default:
+				weight = 1;
+			}
+			probabilities[i] = weight;
+			sum += weight;
+		}
+		for (int i = 0; i < alphabetSize; i++)
+			probabilities[i] /= sum;
+	}
+
+	private void buildAliasTable() {
+		int n = alphabetSize;
+		threshold = new double[n];
+		alias = new int[n];
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0, largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = probabilities[i] * n;
+			if (scaled[i] < 1)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+		/* Every small column is topped up to 1 by a large one, which gives away that much */
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			threshold[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if (scaled[more] < 1)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+		/* Whatever is left is 1 up to rounding errors */
+		while (largeCount > 0)
+			threshold[large[--largeCount]] = 1;
+		while (smallCount > 0)
+			threshold[small[--smallCount]] = 1;
+	}
+
+	private void buildPeriod() {
+		cumulative = new long[alphabetSize + 1];
+		long previous = 0, current = 1;
+		for (int i = 0; i < alphabetSize; i++) {
+			cumulative[i + 1] = cumulative[i] + current;
+			long next = previous + current;
+			previous = current;
+			current = next;
+		}
+		period = cumulative[alphabetSize];
+		for (int i = 0; i < alphabetSize; i++)
+			probabilities[i] = (double) (cumulative[i + 1] - cumulative[i]) / period;
+	}
+
+	/**
+	 * @return the symbol whose share of the period holds the position
+	 */
+	private int fibonacciSymbol(long position) {
+		int low = 0, high = alphabetSize - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (cumulative[mid] <= position)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+}
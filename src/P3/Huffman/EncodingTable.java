@@ -0,0 +1,296 @@
+package P3.Huffman;
+
+import java.nio.ByteBuffer;
+
+import P3.DataStructures.Tree.BTNode;
+
+/**
+ * Prefix codes stored in plain arrays indexed by symbol: the code bits in codes[symbol] and its length in lengths[symbol].
+ *
+ * Encoding a symbol is two array loads and a BitWriter.writeBits(), instead of boxing the character into a String,
+ * hashing it and appending another String. Symbols without a code have length 0.
+ *
+ * Codes are stored as longs rather than ints because an unlimited Huffman tree can be deeper than 32 levels;
+ * codes limited with LengthLimiter to 32 bits or less simply leave the upper half empty.
+ *
+ * The table of a sparse code (see SymbolRanks) is indexed by the rank of the symbol instead, and every symbol is
+ * turned into its rank before the lookup.
+ */
+public class EncodingTable {
+
+	// private fields
+	private final long[] codes;
+	private final byte[] lengths;
+	private final int alphabetSize;
+	private final SymbolRanks ranks;  /* Symbol of every index, null if the arrays are indexed by symbol */
+
+	/**
+	 * @param codes code of every symbol, right aligned
+	 * @param lengths length of the code of every symbol, 0 for symbols without a code
+	 * @param alphabetSize how many entries of the arrays are used
+	 */
+	public EncodingTable(long[] codes, byte[] lengths, int alphabetSize) {
+		this(codes, lengths, alphabetSize, null);
+	}
+
+	/**
+	 * @param codes code of every symbol, right aligned, indexed by rank if ranks isn't null
+	 * @param lengths length of the code of every symbol, 0 for symbols without a code
+	 * @param alphabetSize how many entries of the arrays are used
+	 * @param ranks the symbols of a sparse code, or null if the arrays are indexed by symbol
+	 */
+	public EncodingTable(long[] codes, byte[] lengths, int alphabetSize, SymbolRanks ranks) {
+		if (alphabetSize < 1 || alphabetSize > codes.length || alphabetSize > lengths.length)
+			throw new IllegalArgumentException("Alphabet size does not match the arrays.");
+		if (ranks != null && ranks.size() != alphabetSize)
+			throw new IllegalArgumentException("Alphabet size does not match the ranks.");
+		this.codes = codes;
+		this.lengths = lengths;
+		this.alphabetSize = alphabetSize;
+		this.ranks = ranks;
+	}
+
+	/**
+	 * Builds the table with the same codes huffman_code() would give, by walking the tree once.
+	 *
+	 * @param huffmanRoot root of a tree built by huffman_tree(), whose leaves hold single characters
+	 * @return the table of the tree's codes
+	 */
+	public static EncodingTable fromTree(BTNode<Integer, String> huffmanRoot) {
+		int alphabetSize = maxSymbol(huffmanRoot) + 1;
+		EncodingTable table = new EncodingTable(new long[alphabetSize], new byte[alphabetSize], alphabetSize);
+		if (isLeaf(huffmanRoot)) {
+			/* Same as huffman_code(): a single character gets the code 1 */
+			int symbol = huffmanRoot.getValue().charAt(0);
+			table.codes[symbol] = 1;
+			table.lengths[symbol] = 1;
+		} else
+			table.fill(huffmanRoot, 0, 0);
+		return table;
+	}
+
+	/**
+	 * Encodes text[from, to), one symbol per character.
+	 *
+	 * @param text characters to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(CharSequence text, int from, int to, BitWriter out) {
+		long start = out.bitLength();
+		if (ranks != null) {
+			for (int i = from; i < to; i++)
+				writeRanked(text.charAt(i), out);
+			return out.bitLength() - start;
+		}
+		long[] c = codes;
+		byte[] l = lengths;
+		for (int i = from; i < to; i++) {
+			int symbol = text.charAt(i);
+			if (symbol >= alphabetSize || l[symbol] == 0)
+				throw noCode(symbol);
+			out.writeBits(c[symbol], l[symbol]);
+		}
+		return out.bitLength() - start;
+	}
+
+	/**
+	 * Encodes text[from, to), one symbol per Unicode code point, so a surrogate pair is a single symbol.
+	 *
+	 * @param text characters to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encodeCodePoints(CharSequence text, int from, int to, BitWriter out) {
+		long start = out.bitLength();
+		if (ranks != null) {
+			for (int i = from; i < to; ) {
+				int symbol = Character.codePointAt(text, i);
+				writeRanked(symbol, out);
+				i += Character.charCount(symbol);
+			}
+			return out.bitLength() - start;
+		}
+		long[] c = codes;
+		byte[] l = lengths;
+		for (int i = from; i < to; ) {
+			int symbol = Character.codePointAt(text, i);
+			if (symbol >= alphabetSize || l[symbol] == 0)
+				throw noCode(symbol);
+			out.writeBits(c[symbol], l[symbol]);
+			i += Character.charCount(symbol);
+		}
+		return out.bitLength() - start;
+	}
+
+	/**
+	 * Encodes data[from, to), one symbol per unsigned byte.
+	 *
+	 * @param data bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(byte[] data, int from, int to, BitWriter out) {
+		long start = out.bitLength();
+		if (ranks != null) {
+			for (int i = from; i < to; i++)
+				writeRanked(data[i] & 0xFF, out);
+			return out.bitLength() - start;
+		}
+		long[] c = codes;
+		byte[] l = lengths;
+		for (int i = from; i < to; i++) {
+			int symbol = data[i] & 0xFF;
+			if (symbol >= alphabetSize || l[symbol] == 0)
+				throw noCode(symbol);
+			out.writeBits(c[symbol], l[symbol]);
+		}
+		return out.bitLength() - start;
+	}
+
+	/**
+	 * Encodes every remaining byte of the buffer, one symbol per unsigned byte, and leaves the buffer at its limit.
+	 *
+	 * @param data bytes to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(ByteBuffer data, BitWriter out) {
+		long start = out.bitLength();
+		if (ranks != null) {
+			while (data.hasRemaining())
+				writeRanked(data.get() & 0xFF, out);
+			return out.bitLength() - start;
+		}
+		long[] c = codes;
+		byte[] l = lengths;
+		while (data.hasRemaining()) {
+			int symbol = data.get() & 0xFF;
+			if (symbol >= alphabetSize || l[symbol] == 0)
+				throw noCode(symbol);
+			out.writeBits(c[symbol], l[symbol]);
+		}
+		return out.bitLength() - start;
+	}
+
+	/**
+	 * Encodes symbols[from, to).
+	 *
+	 * @param symbols symbols to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(int[] symbols, int from, int to, BitWriter out) {
+		long start = out.bitLength();
+		if (ranks != null) {
+			for (int i = from; i < to; i++)
+				writeRanked(symbols[i], out);
+			return out.bitLength() - start;
+		}
+		long[] c = codes;
+		byte[] l = lengths;
+		for (int i = from; i < to; i++) {
+			int symbol = symbols[i];
+			if (symbol < 0 || symbol >= alphabetSize || l[symbol] == 0)
+				throw noCode(symbol);
+			out.writeBits(c[symbol], l[symbol]);
+		}
+		return out.bitLength() - start;
+	}
+
+	/**
+	 * @return a HuffmanDecoder for the codes in this table
+	 */
+	public HuffmanDecoder newDecoder() {
+		int count = 0;
+		for (int s = 0; s < alphabetSize; s++)
+			if (lengths[s] > 0)
+				count++;
+		int[] symbols = new int[count];
+		long[] symbolCodes = new long[count];
+		int[] symbolLengths = new int[count];
+		int i = 0;
+		for (int s = 0; s < alphabetSize; s++) {
+			if (lengths[s] > 0) {
+				symbols[i] = ranks == null ? s : ranks.symbol(s);
+				symbolCodes[i] = codes[s];
+				symbolLengths[i] = lengths[s];
+				i++;
+			}
+		}
+		return new HuffmanDecoder(symbols, symbolCodes, symbolLengths, count);
+	}
+
+	/**
+	 * @return one more than the largest symbol the table can have
+	 */
+	public int getAlphabetSize() {
+		return ranks == null ? alphabetSize : ranks.maxSymbol() + 1;
+	}
+	/**
+	 * @return the code of the symbol, right aligned, or 0 if it has none (like getLength())
+	 */
+	public long getCode(int symbol) {
+		int index = indexOf(symbol);
+		return index < 0 || lengths[index] == 0 ? 0 : codes[index];
+	}
+	public int getLength(int symbol) {
+		int index = indexOf(symbol);
+		return index < 0 ? 0 : lengths[index];
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the index of a symbol in the arrays, or -1 if it has none
+	 */
+	private int indexOf(int symbol) {
+		if (ranks != null)
+			return ranks.rank(symbol);
+		return symbol >= 0 && symbol < alphabetSize ? symbol : -1;
+	}
+
+	private void writeRanked(int symbol, BitWriter out) {
+		int rank = ranks.rank(symbol);
+		if (rank < 0 || lengths[rank] == 0)
+			throw noCode(symbol);
+		out.writeBits(codes[rank], lengths[rank]);
+	}
+
+	private void fill(BTNode<Integer, String> node, long code, int depth) {
+		if (isLeaf(node)) {
+			if (depth > HuffmanDecoder.MAX_CODE_LENGTH)
+				throw new IllegalArgumentException("Huffman tree is deeper than " + HuffmanDecoder.MAX_CODE_LENGTH + " levels.");
+			int symbol = node.getValue().charAt(0);
+			codes[symbol] = code;
+			lengths[symbol] = (byte) depth;
+		} else {
+			/* Left vertexes are marked with a 0 and right vertexes with a 1, like in buildPrefixCode() */
+			fill(node.getLeftChild(), code << 1, depth + 1);
+			fill(node.getRightChild(), (code << 1) | 1, depth + 1);
+		}
+	}
+
+	private static int maxSymbol(BTNode<Integer, String> node) {
+		if (isLeaf(node))
+			return node.getValue().charAt(0);
+		return Math.max(maxSymbol(node.getLeftChild()), maxSymbol(node.getRightChild()));
+	}
+
+	private static boolean isLeaf(BTNode<Integer, String> node) {
+		return node.getLeftChild() == null && node.getRightChild() == null;
+	}
+
+	private static IllegalArgumentException noCode(int symbol) {
+		return new IllegalArgumentException("No prefix code for symbol: " + symbol);
+	}
+
+}
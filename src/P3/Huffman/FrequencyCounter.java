@@ -0,0 +1,193 @@
+package P3.Huffman;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+
+/**
+ * Counts symbol frequencies of large inputs in parallel.
+ *
+ * The input is split into chunks with fork/join; every chunk is counted by one thread into its own private counters,
+ * and the counters are added together while the tasks join. Threads never write to shared memory while counting,
+ * and every private array is padded by a cache line on both ends so two threads never write to the same line.
+ *
+ * Inputs shorter than the threshold are counted sequentially, since splitting them costs more than it saves.
+ */
+public class FrequencyCounter {
+
+	/** Inputs smaller than this are counted on the calling thread */
+	public static final int DEFAULT_THRESHOLD = 1 << 20;
+
+	private static final int CHAR_ALPHABET = 1 << 16;
+	private static final int BYTE_ALPHABET = 1 << 8;
+	/* 8 longs = 64 bytes, one cache line */
+	private static final int PADDING = 8;
+
+	/**
+	 * Counts every character of the text, in parallel on the common pool if it is long enough.
+	 *
+	 * @param text characters to count
+	 * @return histogram over the 65536 UTF-16 characters
+	 */
+	public static DenseHistogram countChars(CharSequence text) {
+		return countChars(text, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Counts every character of the text.
+	 *
+	 * @param text characters to count
+	 * @param pool pool that runs the counting tasks
+	 * @param threshold inputs (and chunks) at or below this length are counted sequentially
+	 * @return histogram over the 65536 UTF-16 characters
+	 */
+	public static DenseHistogram countChars(CharSequence text, ForkJoinPool pool, int threshold) {
+		DenseHistogram histogram = new DenseHistogram(CHAR_ALPHABET);
+		if (text.length() <= threshold) {
+			histogram.countChars(text, 0, text.length());
+			return histogram;
+		}
+		long[] counts = pool.invoke(new CountTask(text, null, null, 0, text.length(), chunkSize(text.length(), pool, threshold)));
+		addTo(histogram, counts);
+		return histogram;
+	}
+
+	/**
+	 * Counts every byte of data, in parallel on the common pool if it is long enough.
+	 *
+	 * @param data bytes to count
+	 * @param from first index to count
+	 * @param to one past the last index to count
+	 * @return histogram over the 256 byte values
+	 */
+	public static DenseHistogram countBytes(byte[] data, int from, int to) {
+		return countBytes(data, from, to, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Counts every byte of data.
+	 *
+	 * @param data bytes to count
+	 * @param from first index to count
+	 * @param to one past the last index to count
+	 * @param pool pool that runs the counting tasks
+	 * @param threshold inputs (and chunks) at or below this length are counted sequentially
+	 * @return histogram over the 256 byte values
+	 */
+	public static DenseHistogram countBytes(byte[] data, int from, int to, ForkJoinPool pool, int threshold) {
+		DenseHistogram histogram = new DenseHistogram(BYTE_ALPHABET);
+		if (to - from <= threshold) {
+			histogram.countBytes(data, from, to);
+			return histogram;
+		}
+		long[] counts = pool.invoke(new CountTask(null, data, null, from, to, chunkSize(to - from, pool, threshold)));
+		addTo(histogram, counts);
+		return histogram;
+	}
+
+	/**
+	 * Counts every remaining byte of the buffer, in parallel on the common pool if there are enough of them.
+	 * The buffer's position is not changed, so it can be encoded right after (a MappedByteBuffer for example).
+	 *
+	 * @param buffer bytes to count, from its position to its limit
+	 * @return histogram over the 256 byte values
+	 */
+	public static DenseHistogram countBytes(ByteBuffer buffer) {
+		return countBytes(buffer, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Counts every remaining byte of the buffer without changing its position.
+	 *
+	 * @param buffer bytes to count, from its position to its limit
+	 * @param pool pool that runs the counting tasks
+	 * @param threshold buffers (and chunks) at or below this length are counted sequentially
+	 * @return histogram over the 256 byte values
+	 */
+	public static DenseHistogram countBytes(ByteBuffer buffer, ForkJoinPool pool, int threshold) {
+		DenseHistogram histogram = new DenseHistogram(BYTE_ALPHABET);
+		int from = buffer.position(), to = buffer.limit();
+		if (to - from <= threshold) {
+			histogram.countBytes(buffer);
+			return histogram;
+		}
+		long[] counts = pool.invoke(new CountTask(null, null, buffer, from, to, chunkSize(to - from, pool, threshold)));
+		addTo(histogram, counts);
+		return histogram;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/* A few chunks per thread so a slow thread doesn't hold everybody back, but never below the threshold */
+	private static int chunkSize(int length, ForkJoinPool pool, int threshold) {
+		return Math.max(Math.max(threshold, 1), length / (4 * pool.getParallelism()));
+	}
+
+	private static void addTo(DenseHistogram histogram, long[] paddedCounts) {
+		for (int s = 0; s < paddedCounts.length - 2 * PADDING; s++)
+			if (paddedCounts[PADDING + s] > 0)
+				histogram.add(s, paddedCounts[PADDING + s]);
+	}
+
+	/**
+	 * Counts either chars of a CharSequence, bytes of an array or bytes of a ByteBuffer over [from, to).
+	 * The result is an array of counters for symbol s at index PADDING + s.
+	 */
+	@SuppressWarnings("serial")
+	private static class CountTask extends RecursiveTask<long[]> {
+		private final CharSequence text;
+		private final byte[] data;
+		private final ByteBuffer buffer;
+		private final int from, to, chunkSize;
+
+		public CountTask(CharSequence text, byte[] data, ByteBuffer buffer, int from, int to, int chunkSize) {
+			this.text = text;
+			this.data = data;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from <= chunkSize)
+				return text != null ? countChars() : data != null ? countBytes() : countBuffer();
+
+			int mid = (from + to) >>> 1;
+			CountTask left = new CountTask(text, data, buffer, from, mid, chunkSize);
+			CountTask right = new CountTask(text, data, buffer, mid, to, chunkSize);
+			left.fork();
+			long[] counts = right.compute();
+			long[] leftCounts = left.join();
+			for (int i = PADDING; i < counts.length - PADDING; i++)
+				counts[i] += leftCounts[i];
+			return counts;
+		}
+
+		private long[] countChars() {
+			long[] counts = new long[CHAR_ALPHABET + 2 * PADDING];
+			for (int i = from; i < to; i++)
+				counts[PADDING + text.charAt(i)]++;
+			return counts;
+		}
+
+		private long[] countBytes() {
+			long[] counts = new long[BYTE_ALPHABET + 2 * PADDING];
+			for (int i = from; i < to; i++)
+				counts[PADDING + (data[i] & 0xFF)]++;
+			return counts;
+		}
+
+		private long[] countBuffer() {
+			/* Absolute gets, so every task can read the same buffer without touching its position */
+			long[] counts = new long[BYTE_ALPHABET + 2 * PADDING];
+			for (int i = from; i < to; i++)
+				counts[PADDING + (buffer.get(i) & 0xFF)]++;
+			return counts;
+		}
+	}
+
+}
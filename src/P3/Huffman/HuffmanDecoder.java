@@ -0,0 +1,246 @@
+package P3.Huffman;
+
+import P3.DataStructures.List.List;
+import P3.DataStructures.Map.Map;
+
+/**
+ * Table driven Huffman decoder.
+ *
+ * Instead of walking the tree one bit at a time, the decoder peeks at the next PRIMARY_BITS bits of the stream
+ * and looks them up in a table that directly says which symbol they start with and how long its code is.
+ * Codes longer than the primary table are resolved through secondary tables of SECONDARY_BITS bits each,
+ * so even the rare, very long codes of a skewed distribution take a couple of lookups instead of a walk.
+ * If no code is longer than SINGLE_TABLE_BITS, the primary table is made as wide as the longest code instead,
+ * which still fits in the L1 cache and resolves every code in one lookup.
+ *
+ * Every table entry is a single int:
+ * a positive entry holds (symbol << 6) | remaining code length,
+ * a negative entry ~i points to secondary table i,
+ * and 0 marks a bit pattern that no code starts with.
+ */
+public class HuffmanDecoder {
+
+	public static final int PRIMARY_BITS = 10;
+	public static final int SECONDARY_BITS = 8;
+	/** Widest primary table used to avoid secondary tables altogether */
+	public static final int SINGLE_TABLE_BITS = 12;
+	/** The longest code of any encoder or decoder: codes are right aligned longs, and canonical headers store lengths in 6 bits */
+	public static final int MAX_CODE_LENGTH = 63;
+	/** Symbols share an int with a 6 bit length */
+	public static final int MAX_SYMBOL = (1 << 25) - 1;
+
+	// private fields
+	private int[][] tables;
+	private int[] tableBits;
+	private int tableCount;
+	private int maxLength;
+
+	/**
+	 * Builds the decoding tables from the prefix codes generated by huffman_code()
+	 *
+	 * @param decodingMap map from each symbol (a single character) to its prefix code
+	 */
+	public HuffmanDecoder(Map<String, String> decodingMap) {
+		if (decodingMap == null || decodingMap.isEmpty())
+			throw new IllegalArgumentException("Code map cannot be null or empty.");
+
+		int size = decodingMap.size();
+		int[] symbols = new int[size];
+		long[] codes = new long[size];
+		int[] lengths = new int[size];
+
+		List<String> keys = decodingMap.getKeys();
+		int i = 0;
+		for (String key : keys) {
+			if (key.length() != 1)
+				throw new IllegalArgumentException("Symbols must be single characters: " + key);
+			String code = decodingMap.get(key);
+			if (code.isEmpty() || code.length() > MAX_CODE_LENGTH)
+				throw new IllegalArgumentException("Invalid prefix code for symbol " + key + ": " + code);
+			symbols[i] = key.charAt(0);
+			codes[i] = Long.parseUnsignedLong(code, 2);
+			lengths[i] = code.length();
+			i++;
+		}
+		build(symbols, codes, lengths, size);
+	}
+
+	/**
+	 * Builds the decoding tables from parallel arrays describing every code
+	 *
+	 * @param symbols symbol of each code
+	 * @param codes prefix code of each symbol, right aligned
+	 * @param lengths length of each code in bits
+	 * @param count how many entries of the arrays are used
+	 */
+	public HuffmanDecoder(int[] symbols, long[] codes, int[] lengths, int count) {
+		if (count < 1)
+			throw new IllegalArgumentException("There must be at least one code.");
+		build(symbols, codes, lengths, count);
+	}
+
+	/**
+	 * Decodes the next symbol of the stream and consumes its code
+	 *
+	 * @param in reader positioned at the start of a code
+	 * @return the decoded symbol
+	 */
+	public int decodeSymbol(BitReader in) {
+		int t = 0;
+		int entry = tables[0][(int) in.peekBits(tableBits[0])];
+		while (entry < 0) {
+			/* Long code: consume the bits resolved so far and continue in the secondary table */
+			in.skipBits(tableBits[t]);
+			t = ~entry;
+			entry = tables[t][(int) in.peekBits(tableBits[t])];
+		}
+		if (entry == 0)
+			throw new IllegalArgumentException("Invalid prefix code at bit " + in.position());
+		in.skipBits(entry & 0x3F);
+		return entry >>> 6;
+	}
+
+	/**
+	 * Decodes symbols into out[from, to), each one stored as a byte. Meant for codes over the 256 byte values.
+	 *
+	 * @param in reader positioned at the start of a code
+	 * @param out array that receives the decoded bytes
+	 * @param from first index to fill
+	 * @param to one past the last index to fill
+	 */
+	public void decode(BitReader in, byte[] out, int from, int to) {
+		for (int i = from; i < to; i++)
+			out[i] = (byte) decodeSymbol(in);
+	}
+
+	/**
+	 * Decodes a whole packed message into a string of characters.
+	 *
+	 * @param data packed bits, as produced by BitWriter
+	 * @param bitLength exact number of bits in the message
+	 * @return the decoded string
+	 */
+	public String decode(byte[] data, long bitLength) {
+		if (bitLength < 0 || bitLength > 8L * data.length)
+			throw new IllegalArgumentException("Bit length does not match the data.");
+		BitReader in = new BitReader(data);
+		StringBuilder result = new StringBuilder();
+		while (in.position() < bitLength)
+			result.append((char) decodeSymbol(in));
+		if (in.position() != bitLength)
+			throw new IllegalArgumentException("Message is truncated, last code ends at bit " + in.position());
+		return result.toString();
+	}
+
+	/**
+	 * @return length of the longest code
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/*
+	 * The methods below let InterleavedCodec decode from bit buffers it keeps in local variables,
+	 * instead of going through a BitReader for every symbol.
+	 */
+
+	/**
+	 * @return the primary table, indexed by the next primaryBits() bits of the stream
+	 */
+	int[] primaryTable() {
+		return tables[0];
+	}
+	int primaryBits() {
+		return tableBits[0];
+	}
+
+	/**
+	 * Looks up the code at the start of a left aligned bit buffer holding at least getMaxLength() bits,
+	 * going through the secondary tables if needed. Nothing is consumed.
+	 *
+	 * @param bits next bits of the stream, left aligned
+	 * @return (symbol << 6) | length of the whole code
+	 * @throws IllegalArgumentException if no code starts with these bits
+	 */
+	int lookup(long bits) {
+		int t = 0;
+		int used = 0;
+		int entry = tables[0][(int) (bits >>> (64 - tableBits[0]))];
+		while (entry < 0) {
+			used += tableBits[t];
+			t = ~entry;
+			entry = tables[t][(int) ((bits << used) >>> (64 - tableBits[t]))];
+		}
+		if (entry == 0)
+			throw new IllegalArgumentException("Invalid prefix code.");
+		return entry + used;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private void build(int[] symbols, long[] codes, int[] lengths, int count) {
+		maxLength = 0;
+		for (int i = 0; i < count; i++) {
+			if (lengths[i] < 1 || lengths[i] > MAX_CODE_LENGTH)
+				throw new IllegalArgumentException("Code lengths must be between 1 and " + MAX_CODE_LENGTH);
+			if (symbols[i] < 0 || symbols[i] > MAX_SYMBOL)
+				throw new IllegalArgumentException("Symbol out of range: " + symbols[i]);
+			maxLength = Math.max(maxLength, lengths[i]);
+		}
+
+		tables = new int[4][];
+		tableBits = new int[4];
+		newTable(maxLength <= SINGLE_TABLE_BITS ? maxLength : PRIMARY_BITS);
+
+		/* Insert the longest codes first, so every secondary table is created wide enough for the longest code under it */
+		for (int length = maxLength; length >= 1; length--)
+			for (int i = 0; i < count; i++)
+				if (lengths[i] == length)
+					insert(symbols[i], codes[i], length);
+	}
+
+	private void insert(int symbol, long code, int length) {
+		int t = 0;
+		int depth = 0; /* Bits of the code already resolved by the tables above t */
+		while (true) {
+			int bits = tableBits[t];
+			int remaining = length - depth;
+			if (remaining <= bits) {
+				/* The code ends in this table: fill every entry that starts with its remaining bits */
+				int first = (int) (code & ((1L << remaining) - 1)) << (bits - remaining);
+				int entry = (symbol << 6) | remaining;
+				for (int j = first; j < first + (1 << (bits - remaining)); j++) {
+					if (tables[t][j] != 0)
+						throw new IllegalArgumentException("Codes do not form a prefix code.");
+					tables[t][j] = entry;
+				}
+				return;
+			}
+			int index = (int) ((code >>> (remaining - bits)) & ((1L << bits) - 1));
+			int entry = tables[t][index];
+			if (entry > 0)
+				throw new IllegalArgumentException("Codes do not form a prefix code.");
+			if (entry == 0) {
+				entry = ~newTable(Math.min(remaining - bits, SECONDARY_BITS));
+				tables[t][index] = entry;
+			}
+			t = ~entry;
+			depth += bits;
+		}
+	}
+
+	private int newTable(int bits) {
+		if (tableCount == tables.length) {
+			int[][] newTables = new int[2 * tables.length][];
+			int[] newBits = new int[2 * tables.length];
+			System.arraycopy(tables, 0, newTables, 0, tableCount);
+			System.arraycopy(tableBits, 0, newBits, 0, tableCount);
+			tables = newTables;
+			tableBits = newBits;
+		}
+		tables[tableCount] = new int[1 << bits];
+		tableBits[tableCount] = bits;
+		return tableCount++;
+	}
+
+}
@@ -0,0 +1,357 @@
+package P3.Huffman;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+import P3.Metrics.BlockCompressedEvent;
+import P3.Metrics.BlockDecompressedEvent;
+import P3.Metrics.CodeTableBuiltEvent;
+import P3.Metrics.Metrics;
+import P3.Metrics.Stage;
+
+/**
+ * Compresses and decompresses streams of bytes of any length, without ever holding the whole input in memory.
+ *
+ * The stream starts with a magic number, a flags byte and the block size. The input is cut into blocks of at most
+ * blockSize bytes. Every block is counted, gets its own length-limited canonical code and is written as:
+ *
+ *   int    number of bytes in the block (0 marks the end of the stream)
+ *   int    number of bytes of packed bits that follow
+ *   int    CRC32 of the original bytes of the block
+ *   bits   the code length header (see CanonicalCode.writeHeader()), then the codes of the block,
+ *          either as a single bit stream or, with FLAG_INTERLEAVED, as 4 interleaved streams (see InterleavedCodec)
+ *
+ * so memory use is bounded by the block size no matter how large the input is,
+ * and every block adapts to the data it holds.
+ *
+ * decompress() rejects a block whose codes don't end exactly in its last packed byte, or whose CRC doesn't match,
+ * and never allocates more than a block of the size the header announces, so corrupt data gives an IOException
+ * instead of wrong bytes or an OutOfMemoryError.
+ */
+public class HuffmanStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+	/** Code length limit used for every block, small enough for one or two decoder table lookups */
+	public static final int MAX_CODE_LENGTH = 15;
+
+	/** Blocks are split into 4 interleaved streams, which decode faster */
+	public static final int FLAG_INTERLEAVED = 1;
+
+	private static final int MAGIC = 0x48554632; /* "HUF2" */
+	/* More than the longest code length header plus the jump table and padding of interleaved blocks */
+	private static final int MAX_BLOCK_OVERHEAD = 1024;
+
+	/**
+	 * Compresses everything left in the input stream into the output stream, with the default block size.
+	 * Neither stream is closed.
+	 *
+	 * @param in bytes to compress
+	 * @param out stream that receives the compressed data
+	 * @return number of bytes read from the input
+	 * @throws IOException if either stream fails
+	 */
+	public static long compress(InputStream in, OutputStream out) throws IOException {
+		return compress(in, out, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Compresses everything left in the input stream into the output stream. Neither stream is closed.
+	 *
+	 * @param in bytes to compress
+	 * @param out stream that receives the compressed data
+	 * @param blockSize largest number of input bytes held in memory at once
+	 * @return number of bytes read from the input
+	 * @throws IOException if either stream fails
+	 */
+	public static long compress(InputStream in, OutputStream out, int blockSize) throws IOException {
+		return compress(in, out, blockSize, 0);
+	}
+
+	/**
+	 * Compresses everything left in the input stream into the output stream. Neither stream is closed.
+	 *
+	 * @param in bytes to compress
+	 * @param out stream that receives the compressed data
+	 * @param blockSize largest number of input bytes held in memory at once
+	 * @param flags 0, or FLAG_INTERLEAVED
+	 * @return number of bytes read from the input
+	 * @throws IOException if either stream fails
+	 */
+	public static long compress(InputStream in, OutputStream out, int blockSize, int flags) throws IOException {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1");
+		DataOutputStream data = writeStreamHeader(out, blockSize, flags);
+
+		byte[] block = new byte[blockSize];
+		BitWriter bits = new BitWriter(blockSize / 2 + 64);
+		CRC32 crc = new CRC32();
+		long total = 0;
+		int length;
+		while ((length = readBlock(in, block)) > 0) {
+			writeBlock(data, ByteBuffer.wrap(block, 0, length), bits, crc, flags);
+			total += length;
+		}
+		data.writeInt(0);
+		data.flush();
+		return total;
+	}
+
+	/**
+	 * Compresses everything left in the input channel into the output channel. Neither channel is closed.
+	 *
+	 * @param in bytes to compress
+	 * @param out channel that receives the compressed data
+	 * @return number of bytes read from the input
+	 * @throws IOException if either channel fails
+	 */
+	public static long compress(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		/* Buffered, so the ints of every block header don't become single byte channel writes */
+		return compress(Channels.newInputStream(in), new BufferedOutputStream(Channels.newOutputStream(out)), DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Compresses a memory mapped file into the output stream, with the default block size. The stream is not closed.
+	 *
+	 * Blocks are counted and encoded straight from the mapped windows of the file, so no byte is copied on the way in.
+	 * The output is the same format compress(InputStream, OutputStream) writes, and is read back with decompress().
+	 *
+	 * @param in mapped file to compress
+	 * @param out stream that receives the compressed data
+	 * @return number of bytes compressed
+	 * @throws IOException if the file can't be mapped or the stream fails
+	 */
+	public static long compress(MappedInput in, OutputStream out) throws IOException {
+		return compress(in, out, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Compresses a memory mapped file into the output stream. The stream is not closed.
+	 *
+	 * @param in mapped file to compress
+	 * @param out stream that receives the compressed data
+	 * @param blockSize largest number of input bytes in one block
+	 * @return number of bytes compressed
+	 * @throws IOException if the file can't be mapped or the stream fails
+	 */
+	public static long compress(MappedInput in, OutputStream out, int blockSize) throws IOException {
+		return compress(in, out, blockSize, 0);
+	}
+
+	/**
+	 * Compresses a memory mapped file into the output stream. The stream is not closed.
+	 *
+	 * @param in mapped file to compress
+	 * @param out stream that receives the compressed data
+	 * @param blockSize largest number of input bytes in one block
+	 * @param flags 0, or FLAG_INTERLEAVED
+	 * @return number of bytes compressed
+	 * @throws IOException if the file can't be mapped or the stream fails
+	 */
+	public static long compress(MappedInput in, OutputStream out, int blockSize, int flags) throws IOException {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1");
+		DataOutputStream data = writeStreamHeader(out, blockSize, flags);
+
+		BitWriter bits = new BitWriter(blockSize / 2 + 64);
+		CRC32 crc = new CRC32();
+		for (int w = 0; w < in.windowCount(); w++) {
+			ByteBuffer window = in.window(w);
+			/* A block never crosses the end of a window; the last block of each window may be shorter */
+			for (int start = 0; start < window.limit(); start += blockSize) {
+				int length = Math.min(blockSize, window.limit() - start);
+				ByteBuffer block = window.duplicate();
+				block.position(start);
+				block.limit(start + length);
+
+				writeBlock(data, block, bits, crc, flags);
+			}
+		}
+		data.writeInt(0);
+		data.flush();
+		return in.size();
+	}
+
+	/**
+	 * Decompresses a stream written by compress() into the output stream. Neither stream is closed.
+	 *
+	 * @param in compressed data
+	 * @param out stream that receives the original bytes
+	 * @return number of bytes written to the output
+	 * @throws IOException if either stream fails, or the compressed data is corrupt
+	 */
+	public static long decompress(InputStream in, OutputStream out) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a Huffman compressed stream.");
+		int flags = data.readUnsignedByte();
+		if ((flags & ~FLAG_INTERLEAVED) != 0)
+			throw new IOException("Unknown stream flags: " + flags);
+		int blockSize = data.readInt();
+		if (blockSize < 1)
+			throw new IOException("Corrupt stream header, block size " + blockSize);
+
+		byte[] block = new byte[0];
+		byte[] packed = new byte[0];
+		CRC32 crc = new CRC32();
+		long total = 0;
+		int length;
+		while ((length = data.readInt()) > 0) {
+			int packedLength = data.readInt();
+			int checksum = data.readInt();
+			if (length > blockSize || packedLength < 0 || packedLength > maxPackedLength(length))
+				throw new IOException("Corrupt block header.");
+			/* Buffers only grow up to the largest block of the stream */
+			if (block.length < length)
+				block = new byte[length];
+			if (packed.length < packedLength)
+				packed = new byte[packedLength];
+			data.readFully(packed, 0, packedLength);
+			try {
+				decodeBlock(packed, packedLength, block, length, flags);
+			} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+				throw new IOException("Corrupt block: " + e.getMessage(), e);
+			}
+			crc.reset();
+			crc.update(block, 0, length);
+			if ((int) crc.getValue() != checksum)
+				throw new IOException("Corrupt block, checksum mismatch.");
+			out.write(block, 0, length);
+			total += length;
+		}
+		if (length < 0)
+			throw new IOException("Corrupt block header.");
+		out.flush();
+		return total;
+	}
+
+	/**
+	 * Decompresses a channel written by compress() into the output channel. Neither channel is closed.
+	 *
+	 * @param in compressed data
+	 * @param out channel that receives the original bytes
+	 * @return number of bytes written to the output
+	 * @throws IOException if either channel fails, or the compressed data is corrupt
+	 */
+	public static long decompress(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		return decompress(Channels.newInputStream(in), Channels.newOutputStream(out));
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static DataOutputStream writeStreamHeader(OutputStream out, int blockSize, int flags) throws IOException {
+		if ((flags & ~FLAG_INTERLEAVED) != 0)
+			throw new IllegalArgumentException("Unknown stream flags: " + flags);
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(flags);
+		data.writeInt(blockSize);
+		return data;
+	}
+
+	/**
+	 * Encodes the remaining bytes of the buffer and writes them as a block: its length, packed length, CRC and bits
+	 */
+	private static void writeBlock(DataOutputStream data, ByteBuffer block, BitWriter bits, CRC32 crc, int flags) throws IOException {
+		int length = block.remaining();
+		crc.reset();
+		crc.update(block.duplicate());
+		bits.reset();
+		encodeBlock(block, bits, flags);
+		data.writeInt(length);
+		data.writeInt(bits.byteLength());
+		data.writeInt((int) crc.getValue());
+		bits.writeTo(data);
+	}
+
+	/**
+	 * @return largest number of packed bytes a block of length bytes can take, codes being at most MAX_CODE_LENGTH bits
+	 */
+	private static long maxPackedLength(int length) {
+		return (MAX_CODE_LENGTH * (long) length + 7) / 8 + MAX_BLOCK_OVERHEAD;
+	}
+
+	/**
+	 * Writes the code length header and the codes of the remaining bytes of the buffer to bits
+	 */
+	static void encodeBlock(ByteBuffer block, BitWriter bits, int flags) {
+		BlockCompressedEvent blockEvent = new BlockCompressedEvent();
+		blockEvent.begin();
+		int length = block.remaining();
+		long start = Metrics.start();
+		DenseHistogram histogram = FrequencyCounter.countBytes(block);
+		Metrics.stage(Stage.COMPUTE_FD, start, length, 0, length);
+
+		CodeTableBuiltEvent tableEvent = new CodeTableBuiltEvent();
+		tableEvent.begin();
+		start = Metrics.start();
+		FlatHuffmanTree tree = FlatHuffmanTree.build(histogram);
+		Metrics.stage(Stage.HUFFMAN_TREE, start, 0, 0, tree.leafCount());
+
+		start = Metrics.start();
+		CanonicalCode code = CanonicalCode.fromTree(tree, MAX_CODE_LENGTH);
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, code.getSymbolCount());
+		Metrics.codeBuilt(code.getSymbolCount(), code.getMaxLength());
+		tableEvent.finish("HuffmanStream", code.getSymbolCount(), code.getMaxLength(), MAX_CODE_LENGTH);
+
+		start = Metrics.start();
+		long startBit = bits.bitLength();
+		code.writeHeader(bits);
+		if ((flags & FLAG_INTERLEAVED) != 0)
+			InterleavedCodec.encode(code.getEncodingTable(), block, bits);
+		else
+			code.getEncodingTable().encode(block, bits);
+		Metrics.stage(Stage.ENCODE, start, length, (bits.bitLength() - startBit + 7) / 8, length);
+		blockEvent.finish("HuffmanStream", length, bits.bitLength() - startBit, code.getSymbolCount(), code.getMinLength(), code.getMaxLength(),
+				true, (flags & FLAG_INTERLEAVED) != 0);
+	}
+
+	/**
+	 * Reads a block written by encodeBlock() from packed[0, packedLength) into block[0, length)
+	 *
+	 * @throws IllegalArgumentException if the block is corrupt, including codes that don't end in its last byte
+	 */
+	static void decodeBlock(byte[] packed, int packedLength, byte[] block, int length, int flags) {
+		BlockDecompressedEvent event = new BlockDecompressedEvent();
+		event.begin();
+		long start = Metrics.start();
+		BitReader in = new BitReader(packed, 0, packedLength);
+		HuffmanDecoder decoder = CanonicalCode.readHeader(in).newDecoder();
+		if ((flags & FLAG_INTERLEAVED) != 0) {
+			in.alignToByte();
+			InterleavedCodec.decode(decoder, packed, (int) (in.position() >>> 3), packedLength, block, 0, length);
+		} else {
+			decoder.decode(in, block, 0, length);
+			in.checkEnd();
+		}
+		Metrics.stage(Stage.DECODE, start, packedLength, length, length);
+		event.finish("HuffmanStream", packedLength, length, true, (flags & FLAG_INTERLEAVED) != 0);
+	}
+
+	/**
+	 * Fills the block with as many bytes as the stream has, up to its length
+	 *
+	 * @return number of bytes read, 0 at the end of the stream
+	 */
+	private static int readBlock(InputStream in, byte[] block) throws IOException {
+		int length = 0;
+		while (length < block.length) {
+			int read = in.read(block, length, block.length - length);
+			if (read < 0)
+				break;
+			length += read;
+		}
+		return length;
+	}
+
+}
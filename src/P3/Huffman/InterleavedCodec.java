@@ -0,0 +1,214 @@
+package P3.Huffman;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes a block as 4 interleaved bit streams, like huff0 in zstd does.
+ *
+ * In a single bit stream the decoder can't start on a symbol before it knows where the previous code ended,
+ * so every lookup waits on the one before it. Here the block is cut into 4 segments of (almost) equal length,
+ * every segment is encoded into its own stream, and the decoder advances the 4 streams in the same loop:
+ * the 4 lookups of an iteration don't depend on each other, so the CPU can work on them at the same time.
+ * The decoder keeps the 4 bit buffers in local variables and refills them together, so the JIT can keep them in registers
+ * (compare StreamBenchmark.decompress and decompress_interleaved).
+ *
+ * Layout, starting on a byte boundary:
+ *
+ *   3 ints   byte length of streams 0, 1 and 2 (the jump table; stream 3 takes the rest)
+ *   bytes    the 4 streams one after the other, each one padded to a whole byte
+ *
+ * Segment k holds symbols [k * s, (k + 1) * s) of the block, where s = ceil(n / 4), so the last one may be shorter.
+ */
+public class InterleavedCodec {
+
+	public static final int STREAMS = 4;
+
+	private static final int JUMP_TABLE_BYTES = 4 * (STREAMS - 1);
+	/** Longest code the fast decoding loop handles: 2 of them fit in the 56 bits left after a refill */
+	private static final int FAST_CODE_LENGTH = 28;
+	/** Reads 8 bytes of a byte array at once, most significant first like the bit streams */
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	/**
+	 * Encodes data[from, to) as 4 interleaved streams, appended to out after aligning it to a byte.
+	 *
+	 * @param table codes of every byte value
+	 * @param data bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the jump table and the streams
+	 */
+	public static void encode(EncodingTable table, byte[] data, int from, int to, BitWriter out) {
+		encode(table, ByteBuffer.wrap(data, from, to - from), out);
+	}
+
+	/**
+	 * Encodes the remaining bytes of the buffer as 4 interleaved streams, appended to out after aligning it to a byte.
+	 * The buffer's position is not changed.
+	 *
+	 * @param table codes of every byte value
+	 * @param data bytes to encode, from its position to its limit
+	 * @param out writer that receives the jump table and the streams
+	 */
+	public static void encode(EncodingTable table, ByteBuffer data, BitWriter out) {
+		int from = data.position();
+		int to = data.limit();
+		int segment = segmentLength(to - from);
+
+		BitWriter[] streams = new BitWriter[STREAMS];
+		for (int k = 0; k < STREAMS; k++) {
+			ByteBuffer part = data.duplicate();
+			part.limit(Math.min(to, from + (k + 1) * segment));
+			part.position(Math.min(to, from + k * segment));
+			streams[k] = new BitWriter(Math.max(64, segment / 2));
+			table.encode(part, streams[k]);
+		}
+
+		out.alignToByte();
+		for (int k = 0; k < STREAMS - 1; k++)
+			out.writeBits(streams[k].byteLength(), 32);
+		for (int k = 0; k < STREAMS; k++) {
+			out.append(streams[k]);
+			out.alignToByte();
+		}
+	}
+
+	/**
+	 * Decodes a block written by encode() into out[from, to).
+	 *
+	 * @param decoder decoder for the codes the block was encoded with
+	 * @param packed array holding the encoded block
+	 * @param offset index of the first byte of the jump table
+	 * @param end one past the last byte of the encoded block
+	 * @param out array that receives the decoded bytes
+	 * @param from first index to fill
+	 * @param to one past the last index to fill; to - from must be the number of bytes that were encoded
+	 * @throws IllegalArgumentException if the block is corrupt: a stream's codes don't end in its last byte
+	 */
+	public static void decode(HuffmanDecoder decoder, byte[] packed, int offset, int end, byte[] out, int from, int to) {
+		if (end - offset < JUMP_TABLE_BYTES)
+			throw new IllegalArgumentException("Block is too short for its jump table.");
+		BitReader table = new BitReader(packed, offset, JUMP_TABLE_BYTES);
+		int[] starts = new int[STREAMS + 1];
+		starts[0] = offset + JUMP_TABLE_BYTES;
+		for (int k = 1; k < STREAMS; k++) {
+			starts[k] = starts[k - 1] + (int) table.readBits(32);
+			if (starts[k] < starts[k - 1] || starts[k] > end)
+				throw new IllegalArgumentException("Corrupt jump table.");
+		}
+		starts[STREAMS] = end;
+
+		int segment = segmentLength(to - from);
+		int i0 = from, i1 = Math.min(to, from + segment), i2 = Math.min(to, from + 2 * segment), i3 = Math.min(to, from + 3 * segment);
+		int end0 = i1, end1 = i2, end2 = i3;
+
+		/*
+		 * Fast loop: the 4 bit buffers live in local variables, so the JIT keeps them in registers. They are refilled
+		 * together with one 8 byte read each, which leaves at least 56 bits in every buffer: enough for 56 / maxLength codes
+		 * (at least 2, since codes are at most FAST_CODE_LENGTH bits), so the lookups between two refills don't check for bits.
+		 * It stops when a stream gets within 8 bytes of its end; the BitReaders below finish the last few symbols.
+		 */
+		int next0 = starts[0], next1 = starts[1], next2 = starts[2], next3 = starts[3];
+		long buffer0 = 0, buffer1 = 0, buffer2 = 0, buffer3 = 0;
+		int bits0 = 0, bits1 = 0, bits2 = 0, bits3 = 0;
+		if (decoder.getMaxLength() <= FAST_CODE_LENGTH) {
+			int[] primary = decoder.primaryTable();
+			int shift = 64 - decoder.primaryBits();
+			int perRefill = Math.min(4, 56 / decoder.getMaxLength());
+			/* Segments 1 to 3 start 1 to 3 segments after the first one, so one index is enough for all 4 */
+			int i = i0;
+			int last = to - 3 * segment - perRefill;
+			while (i <= last && next0 + 8 <= starts[1] && next1 + 8 <= starts[2] && next2 + 8 <= starts[3] && next3 + 8 <= end) {
+				/* The bits loaded past the whole bytes counted are the ones the next refill loads again at the same place */
+				buffer0 |= (long) LONG.get(packed, next0) >>> bits0;
+				next0 += (63 - bits0) >>> 3;
+				bits0 |= 56;
+				buffer1 |= (long) LONG.get(packed, next1) >>> bits1;
+				next1 += (63 - bits1) >>> 3;
+				bits1 |= 56;
+				buffer2 |= (long) LONG.get(packed, next2) >>> bits2;
+				next2 += (63 - bits2) >>> 3;
+				bits2 |= 56;
+				buffer3 |= (long) LONG.get(packed, next3) >>> bits3;
+				next3 += (63 - bits3) >>> 3;
+				bits3 |= 56;
+
+				for (int repeat = 0; repeat < perRefill; repeat++) {
+					int entry0 = primary[(int) (buffer0 >>> shift)];
+					int entry1 = primary[(int) (buffer1 >>> shift)];
+					int entry2 = primary[(int) (buffer2 >>> shift)];
+					int entry3 = primary[(int) (buffer3 >>> shift)];
+					/* Codes longer than the primary table, or invalid ones, take the slow lookup */
+					if (entry0 <= 0)
+						entry0 = decoder.lookup(buffer0);
+					if (entry1 <= 0)
+						entry1 = decoder.lookup(buffer1);
+					if (entry2 <= 0)
+						entry2 = decoder.lookup(buffer2);
+					if (entry3 <= 0)
+						entry3 = decoder.lookup(buffer3);
+					out[i] = (byte) (entry0 >>> 6);
+					out[i + segment] = (byte) (entry1 >>> 6);
+					out[i + 2 * segment] = (byte) (entry2 >>> 6);
+					out[i + 3 * segment] = (byte) (entry3 >>> 6);
+					i++;
+					buffer0 <<= entry0 & 0x3F;
+					bits0 -= entry0 & 0x3F;
+					buffer1 <<= entry1 & 0x3F;
+					bits1 -= entry1 & 0x3F;
+					buffer2 <<= entry2 & 0x3F;
+					bits2 -= entry2 & 0x3F;
+					buffer3 <<= entry3 & 0x3F;
+					bits3 -= entry3 & 0x3F;
+				}
+			}
+			i1 += i - i0;
+			i2 += i - i0;
+			i3 += i - i0;
+			i0 = i;
+		}
+
+		BitReader r0 = readerAt(packed, starts[0], starts[1], next0, bits0);
+		BitReader r1 = readerAt(packed, starts[1], starts[2], next1, bits1);
+		BitReader r2 = readerAt(packed, starts[2], starts[3], next2, bits2);
+		BitReader r3 = readerAt(packed, starts[3], end, next3, bits3);
+
+		/* The last segment is the shortest, so while it has symbols left every stream does */
+		while (i3 < to) {
+			out[i0++] = (byte) decoder.decodeSymbol(r0);
+			out[i1++] = (byte) decoder.decodeSymbol(r1);
+			out[i2++] = (byte) decoder.decodeSymbol(r2);
+			out[i3++] = (byte) decoder.decodeSymbol(r3);
+		}
+		/* Then finish the streams that are longer than the last one */
+		while (i0 < end0)
+			out[i0++] = (byte) decoder.decodeSymbol(r0);
+		while (i1 < end1)
+			out[i1++] = (byte) decoder.decodeSymbol(r1);
+		while (i2 < end2)
+			out[i2++] = (byte) decoder.decodeSymbol(r2);
+		r0.checkEnd();
+		r1.checkEnd();
+		r2.checkEnd();
+		r3.checkEnd();
+	}
+
+	/**
+	 * @return a reader over packed[start, limit) that continues where the fast loop stopped:
+	 *         next is the first byte not loaded, and bits of the bytes before it are still unread
+	 */
+	private static BitReader readerAt(byte[] packed, int start, int limit, int next, int bits) {
+		BitReader reader = new BitReader(packed, start, limit - start);
+		for (long skip = 8L * (next - start) - bits; skip > 0; skip -= BitReader.MAX_PEEK)
+			reader.skipBits((int) Math.min(skip, BitReader.MAX_PEEK));
+		return reader;
+	}
+
+	private static int segmentLength(int length) {
+		return (length + STREAMS - 1) / STREAMS;
+	}
+
+}
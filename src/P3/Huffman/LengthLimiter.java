@@ -0,0 +1,96 @@
+package P3.Huffman;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Caps the code lengths of a Huffman code at a maximum length.
+ *
+ * Very skewed frequencies (a Fibonacci distribution is the worst case) give Huffman trees as deep as the alphabet is large.
+ * Long codes make the decoding tables spill into many secondary tables and no longer fit in a single refill of a 64-bit buffer.
+ *
+ * This follows the same idea as the heuristics used by zlib and zstd instead of running the full package-merge algorithm:
+ * every code that is too long is cut down to the limit, which breaks the Kraft inequality,
+ * so the least frequent symbols get longer codes until it holds again;
+ * then the most frequent symbols take back any slack that was left over.
+ * The result is always a valid prefix code and is optimal or very close to it in practice.
+ */
+public class LengthLimiter {
+
+	/** Kraft sums are computed in units of 2^-maxLength, which must fit in a long */
+	public static final int MAX_LIMIT = 62;
+
+	/**
+	 * Limits the code lengths in place.
+	 *
+	 * @param lengths code length of every symbol, indexed by symbol; 0 for symbols that do not appear
+	 * @param frequencies how many times every symbol appears, indexed by symbol
+	 * @param alphabetSize how many entries of the arrays are used
+	 * @param maxLength the longest code length allowed
+	 * @return the longest code length after limiting
+	 */
+	public static int limit(byte[] lengths, long[] frequencies, int alphabetSize, int maxLength) {
+		if (maxLength < 1 || maxLength > MAX_LIMIT)
+			throw new IllegalArgumentException("Maximum code length must be between 1 and " + MAX_LIMIT);
+
+		int count = 0;
+		int longest = 0;
+		for (int s = 0; s < alphabetSize; s++) {
+			if (lengths[s] > 0) {
+				count++;
+				longest = Math.max(longest, lengths[s]);
+			}
+		}
+		if (longest <= maxLength)
+			return longest; /* Nothing to do, the code is already optimal */
+		if (count > (1L << maxLength))
+			throw new IllegalArgumentException(count + " symbols can't be coded in " + maxLength + " bits.");
+
+		/* Coded symbols from least to most frequent; ties give the longer code to the larger symbol */
+		Integer[] bySymbol = new Integer[count];
+		int i = 0;
+		for (int s = 0; s < alphabetSize; s++)
+			if (lengths[s] > 0)
+				bySymbol[i++] = s;
+		Arrays.sort(bySymbol, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int freqComp = Long.compare(frequencies[a], frequencies[b]);
+				return freqComp != 0 ? freqComp : Integer.compare(b, a);
+			}
+		});
+
+		/* Cut every long code down to the limit and measure how much that oversubscribes the code space */
+		final long capacity = 1L << maxLength;
+		long kraft = 0;
+		for (int s : bySymbol) {
+			if (lengths[s] > maxLength)
+				lengths[s] = (byte) maxLength;
+			kraft += 1L << (maxLength - lengths[s]);
+		}
+
+		/* Lengthen the codes of the least frequent symbols until the code space is no longer oversubscribed */
+		for (int j = 0; j < count && kraft > capacity; j++) {
+			int s = bySymbol[j];
+			while (kraft > capacity && lengths[s] < maxLength) {
+				kraft -= 1L << (maxLength - lengths[s] - 1);
+				lengths[s]++;
+			}
+		}
+
+		/* Hand any code space left over back to the most frequent symbols */
+		for (int j = count - 1; j >= 0; j--) {
+			int s = bySymbol[j];
+			while (lengths[s] > 1 && kraft + (1L << (maxLength - lengths[s])) <= capacity) {
+				kraft += 1L << (maxLength - lengths[s]);
+				lengths[s]--;
+			}
+		}
+
+		longest = 0;
+		for (int s : bySymbol)
+			longest = Math.max(longest, lengths[s]);
+		return longest;
+	}
+
+}
@@ -0,0 +1,86 @@
+package P3.Huffman;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+
+/**
+ * Read-only, memory mapped view of a file, split into windows.
+ *
+ * Mapping lets the operating system page the file straight into memory, so the bytes are counted and encoded
+ * where they are, without being copied into a byte[] or decoded into a String first.
+ * A single MappedByteBuffer can't be larger than 2 GB, so larger files are processed as a sequence of windows.
+ */
+public class MappedInput implements Closeable {
+
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+	// private fields
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+
+	public MappedInput(Path path) throws IOException {
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	public MappedInput(Path path, int windowSize) throws IOException {
+		if (windowSize < 1)
+			throw new IllegalArgumentException("Window size must be at least 1");
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * @return size of the file in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return how many windows cover the whole file
+	 */
+	public int windowCount() {
+		return (int) ((size + windowSize - 1) / windowSize);
+	}
+
+	/**
+	 * Maps one window of the file. Every window is windowSize bytes long except possibly the last one.
+	 *
+	 * @param index window to map, from 0 to windowCount() - 1
+	 * @return the mapped window, positioned at 0
+	 * @throws IOException if the file can't be mapped
+	 */
+	public MappedByteBuffer window(int index) throws IOException {
+		if (index < 0 || index >= windowCount())
+			throw new IndexOutOfBoundsException();
+		long start = (long) index * windowSize;
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+	}
+
+	/**
+	 * Counts every byte of the file, window by window, straight from the mapped memory.
+	 *
+	 * @return histogram over the 256 byte values
+	 * @throws IOException if the file can't be mapped
+	 */
+	public DenseHistogram countBytes() throws IOException {
+		DenseHistogram histogram = new DenseHistogram(256);
+		for (int w = 0; w < windowCount(); w++)
+			histogram.merge(FrequencyCounter.countBytes(window(w)));
+		return histogram;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
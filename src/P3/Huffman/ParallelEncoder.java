@@ -0,0 +1,150 @@
+package P3.Huffman;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Encodes large inputs on several threads.
+ *
+ * Once the code table is built, encoding one part of the input doesn't depend on any other part.
+ * The input is split into blocks, every block is encoded concurrently into its own BitWriter,
+ * and the blocks are either stitched back together at arbitrary bit offsets into a single bit stream
+ * (identical to what a single thread would produce), or handed back as independently aligned blocks.
+ */
+public class ParallelEncoder {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * Encodes text[from, to) in parallel on the common pool and appends the result to out.
+	 * The bits written are exactly the ones EncodingTable.encode() would write.
+	 *
+	 * @param table codes of every character
+	 * @param text characters to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public static long encode(EncodingTable table, CharSequence text, int from, int to, BitWriter out) {
+		return stitch(encodeBlocks(table, text, from, to, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE), out);
+	}
+
+	/**
+	 * Encodes data[from, to) in parallel on the common pool and appends the result to out.
+	 * The bits written are exactly the ones EncodingTable.encode() would write.
+	 *
+	 * @param table codes of every byte value
+	 * @param data bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public static long encode(EncodingTable table, byte[] data, int from, int to, BitWriter out) {
+		return stitch(encodeBlocks(table, data, from, to, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE), out);
+	}
+
+	/**
+	 * Encodes every block of blockSize characters of text[from, to) into its own writer, concurrently.
+	 *
+	 * @param table codes of every character
+	 * @param text characters to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param pool pool that runs the encoding tasks
+	 * @param blockSize number of characters per block; the last block may be shorter
+	 * @return one writer per block, in order
+	 */
+	public static BitWriter[] encodeBlocks(EncodingTable table, CharSequence text, int from, int to, ForkJoinPool pool, int blockSize) {
+		return encodeBlocks(table, text, null, from, to, pool, blockSize);
+	}
+
+	/**
+	 * Encodes every block of blockSize bytes of data[from, to) into its own writer, concurrently.
+	 *
+	 * @param table codes of every byte value
+	 * @param data bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param pool pool that runs the encoding tasks
+	 * @param blockSize number of bytes per block; the last block may be shorter
+	 * @return one writer per block, in order
+	 */
+	public static BitWriter[] encodeBlocks(EncodingTable table, byte[] data, int from, int to, ForkJoinPool pool, int blockSize) {
+		return encodeBlocks(table, null, data, from, to, pool, blockSize);
+	}
+
+	/**
+	 * Appends the blocks to out one after the other, with no padding between them.
+	 *
+	 * @param blocks encoded blocks, in order
+	 * @param out writer that receives the bits of every block
+	 * @return number of bits appended
+	 */
+	public static long stitch(BitWriter[] blocks, BitWriter out) {
+		long start = out.bitLength();
+		for (BitWriter block : blocks)
+			out.append(block);
+		return out.bitLength() - start;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static BitWriter[] encodeBlocks(EncodingTable table, CharSequence text, byte[] data, int from, int to,
+			ForkJoinPool pool, int blockSize) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1");
+		int blockCount = (int) (((long) to - from + blockSize - 1) / blockSize);
+		BitWriter[] blocks = new BitWriter[blockCount];
+		if (blockCount > 0)
+			pool.invoke(new EncodeTask(table, text, data, from, to, blockSize, blocks, 0, blockCount));
+		return blocks;
+	}
+
+	/**
+	 * Encodes blocks[firstBlock, lastBlock), splitting the range in half until a single block is left.
+	 */
+	@SuppressWarnings("serial")
+	private static class EncodeTask extends RecursiveAction {
+		private final EncodingTable table;
+		private final CharSequence text;
+		private final byte[] data;
+		private final int from, to, blockSize;
+		private final BitWriter[] blocks;
+		private final int firstBlock, lastBlock;
+
+		public EncodeTask(EncodingTable table, CharSequence text, byte[] data, int from, int to, int blockSize,
+				BitWriter[] blocks, int firstBlock, int lastBlock) {
+			this.table = table;
+			this.text = text;
+			this.data = data;
+			this.from = from;
+			this.to = to;
+			this.blockSize = blockSize;
+			this.blocks = blocks;
+			this.firstBlock = firstBlock;
+			this.lastBlock = lastBlock;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastBlock - firstBlock == 1) {
+				int start = from + firstBlock * blockSize;
+				int end = (int) Math.min(to, (long) start + blockSize);
+				/* Rough guess of 4 bits per symbol, the writer grows if needed */
+				BitWriter bits = new BitWriter(Math.max(64, (end - start) / 2));
+				if (text != null)
+					table.encode(text, start, end, bits);
+				else
+					table.encode(data, start, end, bits);
+				blocks[firstBlock] = bits;
+				return;
+			}
+			int mid = (firstBlock + lastBlock) >>> 1;
+			invokeAll(new EncodeTask(table, text, data, from, to, blockSize, blocks, firstBlock, mid),
+					new EncodeTask(table, text, data, from, to, blockSize, blocks, mid, lastBlock));
+		}
+	}
+
+}
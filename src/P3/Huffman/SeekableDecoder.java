@@ -0,0 +1,116 @@
+package P3.Huffman;
+
+/**
+ * Decodes any range of symbols of a Huffman encoded message without decoding the whole message.
+ *
+ * Every read jumps to the sync point at or before the first requested symbol (see SyncPointIndex),
+ * skips the few symbols between the sync point and the start of the range, and decodes only the range itself.
+ * The decoder keeps no state between reads, so it can be shared by several threads.
+ */
+public class SeekableDecoder {
+
+	// private fields
+	private final HuffmanDecoder decoder;
+	private final SyncPointIndex index;
+	private final byte[] data;
+	private final int offset;
+	private final int length;
+
+	/**
+	 * @param decoder decoder for the codes the message was encoded with
+	 * @param index sync points recorded while encoding the message
+	 * @param data packed bits of the message, as produced by BitWriter
+	 */
+	public SeekableDecoder(HuffmanDecoder decoder, SyncPointIndex index, byte[] data) {
+		this(decoder, index, data, 0, data.length);
+	}
+
+	/**
+	 * @param decoder decoder for the codes the message was encoded with
+	 * @param index sync points recorded while encoding the message
+	 * @param data array that holds the packed bits of the message
+	 * @param offset index of the byte where the message starts
+	 * @param length number of bytes of the message
+	 */
+	public SeekableDecoder(HuffmanDecoder decoder, SyncPointIndex index, byte[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length)
+			throw new IndexOutOfBoundsException();
+		if (index.getBitLength() > 8L * length)
+			throw new IllegalArgumentException("Index does not match the data, the message has " + index.getBitLength() + " bits.");
+		this.decoder = decoder;
+		this.index = index;
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * Decodes symbols [position, position + count) of a message over bytes.
+	 *
+	 * @param position first symbol to decode
+	 * @param dest array that receives the decoded bytes
+	 * @param destOffset where the first byte goes in dest
+	 * @param count number of symbols to decode
+	 * @return number of bytes decoded, fewer than count only at the end of the message, -1 if position is past the end
+	 */
+	public int read(long position, byte[] dest, int destOffset, int count) {
+		if (destOffset < 0 || count < 0 || destOffset + count > dest.length)
+			throw new IndexOutOfBoundsException();
+		count = clamp(position, count);
+		if (count <= 0)
+			return count;
+		decoder.decode(seek(position), dest, destOffset, destOffset + count);
+		return count;
+	}
+
+	/**
+	 * Decodes symbols [position, position + count) of a message over characters.
+	 *
+	 * @param position first symbol to decode
+	 * @param count number of symbols to decode
+	 * @return the decoded characters, fewer than count only at the end of the message, null if position is past the end
+	 *         (like read() returns -1)
+	 */
+	public String readChars(long position, int count) {
+		if (count < 0)
+			throw new IndexOutOfBoundsException();
+		count = clamp(position, count);
+		if (count < 0)
+			return null;
+		BitReader in = count > 0 ? seek(position) : null;
+		StringBuilder result = new StringBuilder(count);
+		for (int i = 0; i < count; i++)
+			result.append((char) decoder.decodeSymbol(in));
+		return result.toString();
+	}
+
+	/**
+	 * @return number of symbols in the message
+	 */
+	public long size() {
+		return index.getSymbolCount();
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private int clamp(long position, int count) {
+		if (position < 0)
+			throw new IndexOutOfBoundsException("Position cannot be negative.");
+		if (position >= index.getSymbolCount())
+			return count == 0 ? 0 : -1;
+		return (int) Math.min(count, index.getSymbolCount() - position);
+	}
+
+	/**
+	 * Returns a reader positioned at the start of the given symbol's code
+	 */
+	private BitReader seek(long position) {
+		long bit = index.syncBitOffset(position);
+		BitReader in = new BitReader(data, offset + (int) (bit >>> 3), length - (int) (bit >>> 3));
+		in.skipBits((int) (bit & 7));
+		for (long skip = position - index.syncSymbol(position); skip > 0; skip--)
+			decoder.decodeSymbol(in);
+		return in;
+	}
+
+}
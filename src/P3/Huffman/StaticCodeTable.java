@@ -0,0 +1,221 @@
+package P3.Huffman;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Tree.FlatHuffmanTree;
+
+/**
+ * A code trained offline on a sample corpus, for messages too small to carry their own code.
+ *
+ * A message of a few dozen bytes gains less from Huffman coding than its code length header costs, and counting it
+ * first is most of the work. A static table is trained once from many sample messages and shipped with the program,
+ * so a message is just an 8-bit table id, the codes of its bytes and the code of END, which marks where it stops:
+ * no header, no histogram and no length.
+ *
+ * Every byte value gets one extra count on top of the samples, so any message can be encoded, even one with bytes
+ * the samples never had; they just get long codes. Small corpora are weighed up so the samples still count
+ * at least SAMPLE_WEIGHT times more than those extra counts.
+ */
+public class StaticCodeTable {
+
+	/** Symbol that ends every message, right after the 256 byte values */
+	public static final int END = 256;
+	public static final int ALPHABET_SIZE = 257;
+	public static final int MAX_ID = 255;
+
+	private static final int MAGIC = 0x48554654; /* "HUFT" */
+	private static final int SAMPLE_WEIGHT = 64;
+
+	// private fields
+	private final int id;
+	private final CanonicalCode code;
+	private final EncodingTable encodingTable;
+	private final HuffmanDecoder decoder;
+
+	/**
+	 * @param id number written in front of every message, from 0 to MAX_ID
+	 * @param code code with a prefix code for every byte value and END
+	 */
+	public StaticCodeTable(int id, CanonicalCode code) {
+		if (id < 0 || id > MAX_ID)
+			throw new IllegalArgumentException("Table id must be between 0 and " + MAX_ID);
+		for (int s = 0; s < ALPHABET_SIZE; s++)
+			if (code.getLength(s) == 0)
+				throw new IllegalArgumentException("Static tables need a code for every symbol, missing: " + s);
+		this.id = id;
+		this.code = code;
+		this.encodingTable = code.getEncodingTable();
+		this.decoder = code.newDecoder();
+	}
+
+	/**
+	 * Trains a table on sample messages
+	 *
+	 * @param id number written in front of every message, from 0 to MAX_ID
+	 * @param samples messages like the ones that will be encoded
+	 * @return the trained table
+	 */
+	public static StaticCodeTable train(int id, Iterable<byte[]> samples) {
+		DenseHistogram counts = new DenseHistogram(ALPHABET_SIZE);
+		for (byte[] sample : samples) {
+			counts.countBytes(sample, 0, sample.length);
+			counts.increment(END);
+		}
+		long scale = Math.max(1, (SAMPLE_WEIGHT * ALPHABET_SIZE + counts.total() - 1) / Math.max(1, counts.total()));
+		DenseHistogram histogram = new DenseHistogram(ALPHABET_SIZE);
+		for (int s = 0; s < ALPHABET_SIZE; s++)
+			histogram.add(s, scale * counts.get(s) + 1);
+		return new StaticCodeTable(id, CanonicalCode.fromTree(FlatHuffmanTree.build(histogram), HuffmanStream.MAX_CODE_LENGTH));
+	}
+
+	/**
+	 * Encodes a message: the table id, the codes of its bytes and END
+	 *
+	 * @param message bytes to encode
+	 * @return the packed message, the last byte padded with zeros
+	 */
+	public byte[] encode(byte[] message) {
+		BitWriter out = new BitWriter(message.length + 2);
+		out.writeBits(id, 8);
+		encode(message, 0, message.length, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes the codes of message[from, to) and END, without the table id
+	 *
+	 * @param message bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(byte[] message, int from, int to, BitWriter out) {
+		long bits = encodingTable.encode(message, from, to, out);
+		out.writeBits(encodingTable.getCode(END), encodingTable.getLength(END));
+		return bits + encodingTable.getLength(END);
+	}
+
+	/**
+	 * Decodes a message written by encode(byte[])
+	 *
+	 * @param packed the packed message, starting with this table's id
+	 * @return the original bytes
+	 */
+	public byte[] decode(byte[] packed) {
+		if (packed.length == 0 || (packed[0] & 0xFF) != id)
+			throw new IllegalArgumentException("Message was not encoded with table " + id);
+		BitReader in = new BitReader(packed, 1, packed.length - 1);
+		return decode(in, 8L * (packed.length - 1));
+	}
+
+	/**
+	 * Decodes codes up to END
+	 *
+	 * @param in reader positioned at the first code of a message
+	 * @param bitLimit number of bits the reader holds, to stop at corrupt messages without END
+	 * @return the original bytes
+	 */
+	public byte[] decode(BitReader in, long bitLimit) {
+		byte[] result = new byte[64];
+		int length = 0;
+		int symbol;
+		while ((symbol = decoder.decodeSymbol(in)) != END) {
+			if (in.position() > bitLimit)
+				throw new IllegalArgumentException("Message has no END code.");
+			if (length == result.length)
+				result = Arrays.copyOf(result, 2 * length);
+			result[length++] = (byte) symbol;
+		}
+		if (in.position() > bitLimit)
+			throw new IllegalArgumentException("Message has no END code.");
+		return Arrays.copyOf(result, length);
+	}
+
+	/**
+	 * Writes the table: its id and its code lengths, read back by readFrom()
+	 *
+	 * @param out stream that receives the table; it is not closed
+	 * @throws IOException if the stream fails
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		BitWriter header = new BitWriter();
+		code.writeHeader(header);
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(id);
+		data.writeInt(header.byteLength());
+		header.writeTo(data);
+		data.flush();
+	}
+
+	/**
+	 * Reads a table written by writeTo()
+	 *
+	 * @param in stream positioned at the table; it is not closed
+	 * @return the table
+	 * @throws IOException if the stream fails or doesn't hold a valid table
+	 */
+	public static StaticCodeTable readFrom(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a static Huffman table.");
+		int id = data.readUnsignedByte();
+		int length = data.readInt();
+		if (length < 0 || length > 1 << 16)
+			throw new IOException("Corrupt static table header.");
+		byte[] header = new byte[length];
+		data.readFully(header);
+		try {
+			return new StaticCodeTable(id, CanonicalCode.readHeader(new BitReader(header)));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt static table: " + e.getMessage(), e);
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+	public CanonicalCode getCode() {
+		return code;
+	}
+
+	/**
+	 * Trains a table from the command line, every sample file being one message, or with -lines every line of them:
+	 *
+	 *   java P3.Huffman.StaticCodeTable [-lines] id output sample...
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean lines = args.length > 0 && args[0].equals("-lines");
+		int first = lines ? 1 : 0;
+		if (args.length < first + 3) {
+			System.out.println("Usage: StaticCodeTable [-lines] id output sample...");
+			return;
+		}
+		List<byte[]> samples = new ArrayList<byte[]>();
+		for (int i = first + 2; i < args.length; i++) {
+			if (!lines)
+				samples.add(Files.readAllBytes(Paths.get(args[i])));
+			else
+				for (String line : Files.readAllLines(Paths.get(args[i]), StandardCharsets.UTF_8))
+					samples.add(line.getBytes(StandardCharsets.UTF_8));
+		}
+		StaticCodeTable table = train(Integer.parseInt(args[first]), samples);
+		try (OutputStream out = new FileOutputStream(args[first + 1])) {
+			table.writeTo(out);
+		}
+	}
+
+}
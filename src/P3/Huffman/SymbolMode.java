@@ -0,0 +1,159 @@
+package P3.Huffman;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.Histogram.SparseHistogram;
+
+/**
+ * What a symbol is when text is counted, encoded and decoded.
+ *
+ * The original pipeline counts Java chars, so a character outside the Basic Multilingual Plane (an emoji for example)
+ * is split into two surrogate halves that get separate codes. Each mode counts, encodes and decodes the same way,
+ * so a code built from mode.count(text) always matches mode.encode() and mode.decode().
+ */
+public enum SymbolMode {
+
+	/**
+	 * The UTF-8 bytes of the text. The alphabet is always the 256 byte values, so every table is a small fixed array;
+	 * the fastest mode, and the one to use for binary data (see FrequencyCounter.countBytes() and EncodingTable.encode(byte[], ...)).
+	 */
+	BYTES(1 << 8) {
+		@Override
+		public Histogram count(CharSequence text) {
+			byte[] data = utf8(text);
+			return FrequencyCounter.countBytes(data, 0, data.length);
+		}
+		@Override
+		public long encode(EncodingTable table, CharSequence text, BitWriter out) {
+			byte[] data = utf8(text);
+			return table.encode(data, 0, data.length, out);
+		}
+		@Override
+		public String decode(HuffmanDecoder decoder, byte[] data, long bitLength) {
+			BitReader in = reader(data, bitLength);
+			byte[] result = new byte[64];
+			int length = 0;
+			while (in.position() < bitLength) {
+				if (length == result.length)
+					result = Arrays.copyOf(result, 2 * length);
+				result[length++] = (byte) decoder.decodeSymbol(in);
+			}
+			checkEnd(in, bitLength);
+			return new String(result, 0, length, StandardCharsets.UTF_8);
+		}
+	},
+
+	/**
+	 * UTF-16 chars, the way compute_fd() and encode() have always worked. Supplementary characters are two symbols.
+	 */
+	CHARS(1 << 16) {
+		@Override
+		public Histogram count(CharSequence text) {
+			return FrequencyCounter.countChars(text);
+		}
+		@Override
+		public long encode(EncodingTable table, CharSequence text, BitWriter out) {
+			return table.encode(text, 0, text.length(), out);
+		}
+		@Override
+		public String decode(HuffmanDecoder decoder, byte[] data, long bitLength) {
+			return decoder.decode(data, bitLength);
+		}
+	},
+
+	/**
+	 * Unicode code points, so every character is one symbol. The alphabet has over a million values
+	 * but a text uses few of them, so they are counted in a SparseHistogram.
+	 */
+	CODE_POINTS(Character.MAX_CODE_POINT + 1) {
+		@Override
+		public Histogram count(CharSequence text) {
+			Histogram histogram = new SparseHistogram();
+			for (int i = 0; i < text.length(); ) {
+				int codePoint = Character.codePointAt(text, i);
+				histogram.increment(codePoint);
+				i += Character.charCount(codePoint);
+			}
+			return histogram;
+		}
+		@Override
+		public long encode(EncodingTable table, CharSequence text, BitWriter out) {
+			return table.encodeCodePoints(text, 0, text.length(), out);
+		}
+		@Override
+		public String decode(HuffmanDecoder decoder, byte[] data, long bitLength) {
+			BitReader in = reader(data, bitLength);
+			StringBuilder result = new StringBuilder();
+			while (in.position() < bitLength) {
+				int codePoint = decoder.decodeSymbol(in);
+				if (!Character.isValidCodePoint(codePoint))
+					throw new IllegalArgumentException("Decoded symbol is not a code point: " + codePoint);
+				result.appendCodePoint(codePoint);
+			}
+			checkEnd(in, bitLength);
+			return result.toString();
+		}
+	};
+
+	// private fields
+	private final int alphabetSize;
+
+	private SymbolMode(int alphabetSize) {
+		this.alphabetSize = alphabetSize;
+	}
+
+	/**
+	 * @return number of possible symbols in this mode; every symbol is below this value
+	 */
+	public int alphabetSize() {
+		return alphabetSize;
+	}
+
+	/**
+	 * Counts the symbols of the text
+	 *
+	 * @param text text to count
+	 * @return histogram of the symbols of the text in this mode
+	 */
+	public abstract Histogram count(CharSequence text);
+
+	/**
+	 * Encodes the symbols of the text
+	 *
+	 * @param table codes of the symbols, built from count()
+	 * @param text text to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public abstract long encode(EncodingTable table, CharSequence text, BitWriter out);
+
+	/**
+	 * Decodes a message written by encode() back into text
+	 *
+	 * @param decoder decoder for the codes the message was encoded with
+	 * @param data packed bits of the message
+	 * @param bitLength exact number of bits in the message
+	 * @return the decoded text
+	 */
+	public abstract String decode(HuffmanDecoder decoder, byte[] data, long bitLength);
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static byte[] utf8(CharSequence text) {
+		return text.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static BitReader reader(byte[] data, long bitLength) {
+		if (bitLength < 0 || bitLength > 8L * data.length)
+			throw new IllegalArgumentException("Bit length does not match the data.");
+		return new BitReader(data);
+	}
+
+	private static void checkEnd(BitReader in, long bitLength) {
+		if (in.position() != bitLength)
+			throw new IllegalArgumentException("Message is truncated, last code ends at bit " + in.position());
+	}
+
+}
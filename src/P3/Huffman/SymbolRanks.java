@@ -0,0 +1,72 @@
+package P3.Huffman;
+
+import java.util.Arrays;
+
+/**
+ * Dense numbering of the symbols a sparse code uses: the smallest symbol has rank 0, the next one rank 1, and so on.
+ *
+ * A code over code points or tokens may use a few hundred symbols spread over an alphabet of a million values,
+ * and a single emoji would make tables indexed by symbol over a million entries long. CanonicalCode and EncodingTable
+ * index their arrays by rank instead for such codes, so their tables are only as long as the number of symbols in use;
+ * a symbol is turned into its rank with a binary search over the sorted symbols.
+ */
+public class SymbolRanks {
+
+	/** Alphabets up to this size are always indexed by symbol, like the chars of the original pipeline */
+	public static final int DENSE_ALPHABET_SIZE = 1 << 16;
+
+	// private fields
+	private final int[] symbols;  /* In increasing order, symbols[rank] is the symbol of that rank */
+
+	/**
+	 * @param symbols the symbols in use, in strictly increasing order; the array is kept, not copied
+	 */
+	public SymbolRanks(int[] symbols) {
+		if (symbols.length == 0)
+			throw new IllegalArgumentException("At least one symbol is needed.");
+		for (int i = 0; i < symbols.length; i++)
+			if (symbols[i] < 0 || (i > 0 && symbols[i] <= symbols[i - 1]))
+				throw new IllegalArgumentException("Symbols must be non-negative and in strictly increasing order.");
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Whether a code should be indexed by rank: its alphabet is larger than a char's and mostly unused
+	 *
+	 * @param alphabetSize one more than the largest symbol
+	 * @param symbolCount number of symbols in use
+	 * @return true if tables indexed by symbol would be more than 4 times longer than tables indexed by rank
+	 */
+	public static boolean isSparse(int alphabetSize, int symbolCount) {
+		return alphabetSize > DENSE_ALPHABET_SIZE && alphabetSize / 4 > symbolCount;
+	}
+
+	/**
+	 * @param symbol any symbol
+	 * @return its rank, or -1 if it isn't one of the symbols in use
+	 */
+	public int rank(int symbol) {
+		int rank = Arrays.binarySearch(symbols, symbol);
+		return rank < 0 ? -1 : rank;
+	}
+
+	/**
+	 * @param rank from 0 to size() - 1
+	 * @return the symbol of that rank
+	 */
+	public int symbol(int rank) {
+		return symbols[rank];
+	}
+
+	/**
+	 * @return number of symbols in use
+	 */
+	public int size() {
+		return symbols.length;
+	}
+
+	public int maxSymbol() {
+		return symbols[symbols.length - 1];
+	}
+
+}
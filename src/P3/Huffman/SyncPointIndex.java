@@ -0,0 +1,179 @@
+package P3.Huffman;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Sparse index of sync points into a Huffman encoded message: the bit offset of every interval-th symbol.
+ *
+ * Prefix codes can only be decoded from the start of a code, so without an index reading symbol N means decoding
+ * all N symbols before it. With the index a reader jumps to the sync point at or before N and decodes at most
+ * interval - 1 symbols it doesn't need. A smaller interval means faster seeks and a larger index:
+ * the index costs 64 bits per sync point, so an interval of 4096 symbols adds well under 1% to most messages.
+ *
+ * The index is built while encoding, with encode(), and can be stored next to the message with writeTo().
+ * ContainerWriter stores one in every block when it is given a sync interval.
+ */
+public class SyncPointIndex {
+
+	public static final int DEFAULT_INTERVAL = 4096;
+	/** Bytes writeTo() writes before the sync points: the interval, the number of symbols and the number of bits */
+	public static final int HEADER_SIZE = 20;
+
+	// private fields
+	private final int interval;
+	private final long symbolCount;
+	private final long bitLength;
+	private final long[] bitOffsets;  /* bitOffsets[j] is where symbol j * interval starts */
+
+	/**
+	 * @param interval number of symbols between two sync points
+	 * @param symbolCount number of symbols in the message
+	 * @param bitLength exact number of bits in the message
+	 * @param bitOffsets bit offset of every interval-th symbol, from the start of the message
+	 */
+	public SyncPointIndex(int interval, long symbolCount, long bitLength, long[] bitOffsets) {
+		if (interval < 1)
+			throw new IllegalArgumentException("Interval must be at least 1");
+		if (symbolCount < 0 || bitOffsets.length != syncPointCount(symbolCount, interval))
+			throw new IllegalArgumentException("Number of sync points does not match the number of symbols.");
+		for (int j = 0; j < bitOffsets.length; j++)
+			if (bitOffsets[j] < (j == 0 ? 0 : bitOffsets[j - 1]) || bitOffsets[j] > bitLength)
+				throw new IllegalArgumentException("Sync points must be in increasing order and inside the message.");
+		this.interval = interval;
+		this.symbolCount = symbolCount;
+		this.bitLength = bitLength;
+		this.bitOffsets = bitOffsets;
+	}
+
+	/**
+	 * Encodes text[from, to) like EncodingTable.encode(), recording a sync point every interval characters.
+	 *
+	 * @param table codes of the characters
+	 * @param text characters to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @param interval number of characters between two sync points
+	 * @return the index of the encoded message, whose offsets start at the writer's position before the call
+	 */
+	public static SyncPointIndex encode(EncodingTable table, CharSequence text, int from, int to, BitWriter out, int interval) {
+		return encode(table, text, null, from, to, out, interval);
+	}
+
+	/**
+	 * Encodes data[from, to) like EncodingTable.encode(), recording a sync point every interval bytes.
+	 *
+	 * @param table codes of the bytes
+	 * @param data bytes to encode
+	 * @param from first index to encode
+	 * @param to one past the last index to encode
+	 * @param out writer that receives the codes
+	 * @param interval number of bytes between two sync points
+	 * @return the index of the encoded message, whose offsets start at the writer's position before the call
+	 */
+	public static SyncPointIndex encode(EncodingTable table, byte[] data, int from, int to, BitWriter out, int interval) {
+		return encode(table, null, data, from, to, out, interval);
+	}
+
+	/**
+	 * Writes the index in a compact binary form, read back by readFrom()
+	 *
+	 * @param out destination of the index
+	 * @throws IOException if the destination fails
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(interval);
+		out.writeLong(symbolCount);
+		out.writeLong(bitLength);
+		for (long offset : bitOffsets)
+			out.writeLong(offset);
+	}
+
+	/**
+	 * @return number of bytes writeTo() writes
+	 */
+	public long byteLength() {
+		return HEADER_SIZE + 8L * bitOffsets.length;
+	}
+
+	/**
+	 * Reads an index written by writeTo()
+	 *
+	 * @param in source of the index
+	 * @return the index
+	 * @throws IOException if the source fails or the index is corrupt
+	 */
+	public static SyncPointIndex readFrom(DataInput in) throws IOException {
+		int interval = in.readInt();
+		long symbolCount = in.readLong();
+		long bitLength = in.readLong();
+		if (interval < 1 || symbolCount < 0 || bitLength < 0 || syncPointCount(symbolCount, interval) > Integer.MAX_VALUE)
+			throw new IOException("Corrupt sync point index.");
+		long[] bitOffsets = new long[(int) syncPointCount(symbolCount, interval)];
+		for (int j = 0; j < bitOffsets.length; j++)
+			bitOffsets[j] = in.readLong();
+		try {
+			return new SyncPointIndex(interval, symbolCount, bitLength, bitOffsets);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt sync point index: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param symbol position of a symbol in the message
+	 * @return position of the closest sync point at or before the symbol
+	 */
+	public long syncSymbol(long symbol) {
+		return symbol / interval * interval;
+	}
+
+	/**
+	 * @param symbol position of a symbol in the message
+	 * @return bit offset of the closest sync point at or before the symbol
+	 */
+	public long syncBitOffset(long symbol) {
+		if (symbol < 0 || symbol >= symbolCount)
+			throw new IndexOutOfBoundsException("Symbol " + symbol + " is outside the message.");
+		return bitOffsets[(int) (symbol / interval)];
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+	public long getSymbolCount() {
+		return symbolCount;
+	}
+	public long getBitLength() {
+		return bitLength;
+	}
+	public int getSyncPointCount() {
+		return bitOffsets.length;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static SyncPointIndex encode(EncodingTable table, CharSequence text, byte[] data, int from, int to, BitWriter out, int interval) {
+		if (interval < 1)
+			throw new IllegalArgumentException("Interval must be at least 1");
+		long start = out.bitLength();
+		long[] bitOffsets = new long[(int) syncPointCount(to - from, interval)];
+		/* Encode one interval at a time, so the inner loop stays the table's own */
+		for (int j = 0; j < bitOffsets.length; j++) {
+			int chunkFrom = from + j * interval;
+			int chunkTo = Math.min(to, chunkFrom + interval);
+			bitOffsets[j] = out.bitLength() - start;
+			if (text != null)
+				table.encode(text, chunkFrom, chunkTo, out);
+			else
+				table.encode(data, chunkFrom, chunkTo, out);
+		}
+		return new SyncPointIndex(interval, to - from, out.bitLength() - start, bitOffsets);
+	}
+
+	private static long syncPointCount(long symbolCount, int interval) {
+		return (symbolCount + interval - 1) / interval;
+	}
+
+}
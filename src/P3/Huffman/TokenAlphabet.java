@@ -0,0 +1,264 @@
+package P3.Huffman;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import P3.DataStructures.Histogram.DenseHistogram;
+import P3.DataStructures.Histogram.Histogram;
+import P3.DataStructures.List.List;
+import P3.DataStructures.Map.Map;
+import P3.DataStructures.Map.HashTable.HashTableOA;
+import P3.DataStructures.Map.HashTable.PolynomialHashFunction;
+
+/**
+ * Alphabet whose symbols are whole words or character bigrams instead of single characters.
+ *
+ * Text is cut into tokens: with WORDS every maximal run of letters and digits is a token, and so is every maximal run
+ * of the characters between them (spaces, punctuation); with BIGRAMS every two consecutive characters are a token.
+ * The most frequent tokens get their own symbols, from FIRST_TOKEN up. A token that isn't in the dictionary is escaped
+ * by spelling it out as single characters, whose symbols are the char values below FIRST_TOKEN, so every text can be
+ * encoded and rare tokens don't bloat the code.
+ *
+ * A decoder needs the same dictionary, so store it next to the message with writeTo().
+ */
+public class TokenAlphabet {
+
+	public enum Kind {
+		WORDS, BIGRAMS
+	}
+
+	/** Symbols below this are single chars, used to spell out tokens that aren't in the dictionary */
+	public static final int FIRST_TOKEN = 1 << 16;
+	/** Largest dictionary, so every symbol still fits a CanonicalCode */
+	public static final int MAX_TOKENS = CanonicalCode.MAX_ALPHABET_SIZE - FIRST_TOKEN;
+
+	// private fields
+	private final Kind kind;
+	private final String[] tokens;            /* Token of symbol FIRST_TOKEN + i */
+	private final Map<String, Integer> ids;   /* Token to its index in tokens */
+
+	/**
+	 * @param kind how text is cut into tokens
+	 * @param tokens the dictionary; every token must be one the kind produces, and at least two chars long
+	 */
+	public TokenAlphabet(Kind kind, String[] tokens) {
+		if (tokens.length > MAX_TOKENS)
+			throw new IllegalArgumentException("Dictionary cannot have more than " + MAX_TOKENS + " tokens.");
+		this.kind = kind;
+		this.tokens = tokens;
+		this.ids = new HashTableOA<String, Integer>(Math.max(1, tokens.length), new PolynomialHashFunction<String>());
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].length() < 2)
+				throw new IllegalArgumentException("Single characters are already symbols: " + tokens[i]);
+			if (ids.containsKey(tokens[i]))
+				throw new IllegalArgumentException("Token is in the dictionary twice: " + tokens[i]);
+			ids.put(tokens[i], i);
+		}
+	}
+
+	/**
+	 * Builds the dictionary of a text: its tokens that appear at least minCount times, keeping only the maxTokens most
+	 * frequent ones. A token that appears once saves nothing, since it still has to get a code of its own.
+	 *
+	 * @param text text to learn the tokens from
+	 * @param kind how text is cut into tokens
+	 * @param maxTokens largest number of tokens in the dictionary
+	 * @param minCount fewest times a token must appear to get its own symbol
+	 * @return the alphabet
+	 */
+	public static TokenAlphabet build(CharSequence text, Kind kind, int maxTokens, int minCount) {
+		if (maxTokens < 0 || maxTokens > MAX_TOKENS)
+			throw new IllegalArgumentException("Dictionary size must be between 0 and " + MAX_TOKENS);
+		/* Same idea as compute_fd(), with tokens as keys */
+		Map<String, Integer> fD = new HashTableOA<String, Integer>(new PolynomialHashFunction<String>());
+		for (int i = 0; i < text.length(); ) {
+			int end = tokenEnd(kind, text, i);
+			if (end - i > 1) {
+				fD.merge(text.subSequence(i, end).toString(), 1, Integer::sum);
+			}
+			i = end;
+		}
+
+		/* Keys and values come in the same order; walk them with iterators, get(i) on a linked list is O(i) */
+		List<String> keys = fD.getKeys();
+		Iterator<Integer> values = fD.getValues().iterator();
+		int kept = 0;
+		String[] candidates = new String[keys.size()];
+		int[] counts = new int[keys.size()];
+		for (String key : keys) {
+			int count = values.next();
+			if (count >= minCount) {
+				candidates[kept] = key;
+				counts[kept++] = count;
+			}
+		}
+
+		/* Most frequent first, ties by token so the same text always gives the same dictionary */
+		Integer[] order = new Integer[kept];
+		for (int i = 0; i < kept; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> counts[a] != counts[b] ? Integer.compare(counts[b], counts[a]) : candidates[a].compareTo(candidates[b]));
+		String[] tokens = new String[Math.min(kept, maxTokens)];
+		for (int i = 0; i < tokens.length; i++)
+			tokens[i] = candidates[order[i]];
+		return new TokenAlphabet(kind, tokens);
+	}
+
+	/**
+	 * Cuts the text into symbols: the symbol of every token in the dictionary, the chars of every other token
+	 *
+	 * @param text text to convert
+	 * @return the symbols of the text
+	 */
+	public int[] toSymbols(CharSequence text) {
+		int[] symbols = new int[text.length()];
+		int count = 0;
+		for (int i = 0; i < text.length(); ) {
+			int end = tokenEnd(kind, text, i);
+			Integer id = end - i > 1 ? ids.get(text.subSequence(i, end).toString()) : null;
+			if (id != null)
+				symbols[count++] = FIRST_TOKEN + id;
+			else
+				while (i < end)
+					symbols[count++] = text.charAt(i++);
+			i = end;
+		}
+		return Arrays.copyOf(symbols, count);
+	}
+
+	/**
+	 * Counts the symbols of the text
+	 *
+	 * @param text text to count
+	 * @return histogram of the symbols toSymbols() gives for the text
+	 */
+	public Histogram count(CharSequence text) {
+		return count(toSymbols(text));
+	}
+
+	/**
+	 * @param symbols symbols returned by toSymbols()
+	 * @return histogram of the symbols
+	 */
+	public Histogram count(int[] symbols) {
+		DenseHistogram histogram = new DenseHistogram(FIRST_TOKEN + tokens.length);
+		for (int symbol : symbols)
+			histogram.increment(symbol);
+		return histogram;
+	}
+
+	/**
+	 * Encodes the symbols of the text
+	 *
+	 * @param table codes of the symbols, built from count()
+	 * @param text text to encode
+	 * @param out writer that receives the codes
+	 * @return number of bits written
+	 */
+	public long encode(EncodingTable table, CharSequence text, BitWriter out) {
+		int[] symbols = toSymbols(text);
+		return table.encode(symbols, 0, symbols.length, out);
+	}
+
+	/**
+	 * Decodes a message written by encode() back into text
+	 *
+	 * @param decoder decoder for the codes the message was encoded with
+	 * @param data packed bits of the message
+	 * @param bitLength exact number of bits in the message
+	 * @return the decoded text
+	 */
+	public String decode(HuffmanDecoder decoder, byte[] data, long bitLength) {
+		if (bitLength < 0 || bitLength > 8L * data.length)
+			throw new IllegalArgumentException("Bit length does not match the data.");
+		BitReader in = new BitReader(data);
+		StringBuilder result = new StringBuilder();
+		while (in.position() < bitLength)
+			append(result, decoder.decodeSymbol(in));
+		if (in.position() != bitLength)
+			throw new IllegalArgumentException("Message is truncated, last code ends at bit " + in.position());
+		return result.toString();
+	}
+
+	/**
+	 * Appends the text of a symbol
+	 *
+	 * @param out where the text goes
+	 * @param symbol a char below FIRST_TOKEN, or a token of the dictionary
+	 */
+	public void append(StringBuilder out, int symbol) {
+		if (symbol < FIRST_TOKEN)
+			out.append((char) symbol);
+		else if (symbol - FIRST_TOKEN < tokens.length)
+			out.append(tokens[symbol - FIRST_TOKEN]);
+		else
+			throw new IllegalArgumentException("Symbol is not in the dictionary: " + symbol);
+	}
+
+	/**
+	 * Writes the kind and the dictionary, read back by readFrom()
+	 *
+	 * @param out destination of the dictionary
+	 * @throws IOException if the destination fails
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(kind.ordinal());
+		out.writeInt(tokens.length);
+		for (String token : tokens)
+			out.writeUTF(token);
+	}
+
+	/**
+	 * Reads a dictionary written by writeTo()
+	 *
+	 * @param in source of the dictionary
+	 * @return the alphabet
+	 * @throws IOException if the source fails or the dictionary is corrupt
+	 */
+	public static TokenAlphabet readFrom(DataInput in) throws IOException {
+		int kind = in.readUnsignedByte();
+		int count = in.readInt();
+		if (kind >= Kind.values().length || count < 0 || count > MAX_TOKENS)
+			throw new IOException("Corrupt token dictionary.");
+		String[] tokens = new String[count];
+		for (int i = 0; i < count; i++)
+			tokens[i] = in.readUTF();
+		try {
+			return new TokenAlphabet(Kind.values()[kind], tokens);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt token dictionary: " + e.getMessage(), e);
+		}
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+	public int getTokenCount() {
+		return tokens.length;
+	}
+	/**
+	 * @return number of possible symbols, the chars and the tokens
+	 */
+	public int getAlphabetSize() {
+		return FIRST_TOKEN + tokens.length;
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return one past the last char of the token that starts at index start
+	 */
+	private static int tokenEnd(Kind kind, CharSequence text, int start) {
+		if (kind == Kind.BIGRAMS)
+			return Math.min(start + 2, text.length());
+		boolean word = Character.isLetterOrDigit(text.charAt(start));
+		int end = start + 1;
+		while (end < text.length() && Character.isLetterOrDigit(text.charAt(end)) == word)
+			end++;
+		return end;
+	}
+
+}
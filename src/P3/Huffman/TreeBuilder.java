@@ -0,0 +1,19 @@
+package P3.Huffman;
+
+/**
+ * Strategies huffman_tree() can use to repeatedly find the two lowest frequencies.
+ * 
+ * All of them break ties with BTNode.compareTo(), so the same frequencies always give the same tree.
+ */
+public enum TreeBuilder {
+	/** The original SortedArrayList, O(n^2) because removing the first node shifts the whole array */
+	SORTED_LIST,
+	/** Binary min-heap, O(n log n). Gives exactly the same tree as SORTED_LIST */
+	BINARY_HEAP,
+	/**
+	 * Classic two-queue algorithm, O(n) once the leaves are sorted: leaves wait in one queue
+	 * and merged nodes are appended to a second one, which is created in increasing order of frequency.
+	 * Merged nodes that tie on frequency are kept in compareTo() order, so it gives the same tree as the other two builders.
+	 */
+	TWO_QUEUE
+}
@@ -1,18 +1,30 @@
 package P3.Main;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 
+import P3.DataStructures.Histogram.*;
 import P3.DataStructures.List.*;
 import P3.DataStructures.Map.*;
 import P3.DataStructures.Map.HashTable.*;
+import P3.DataStructures.PriorityQueue.*;
 import P3.DataStructures.SortedList.*;
 import P3.DataStructures.Tree.*;
 import P3.DataStructures.utils.*;
+import P3.Huffman.*;
+import P3.Metrics.*;
 
 /**
  * The Huffman Encoding Algorithm
@@ -28,6 +40,9 @@ import P3.DataStructures.utils.*;
  */
 public class HuffmanCoding {
 
+	/* Strings with characters at or above this value may be counted with a SparseHistogram (see compute_histogram()) */
+	private static final int SPARSE_ALPHABET_SIZE = 4096;
+
 	public static void main(String[] args) {
 		HuffmanEncodedResult();
 	}
@@ -57,6 +72,7 @@ public class HuffmanCoding {
 	 * @return String with the information to be processed
 	 */
 	public static String load_data(String inputFile) {
+		long start = Metrics.start();
 		BufferedReader in = null;
 		String line = "";
 
@@ -64,10 +80,14 @@ public class HuffmanCoding {
 			/*We create a new reader that accepts UTF-8 encoding and extract the input string from the file, and we return it*/
 			in = new BufferedReader(new InputStreamReader(new FileInputStream("inputData/" + inputFile), "UTF-8"));
 			
-			/*If input file is empty just return an empty string, if not just extract the data*/
-			String extracted = in.readLine();
-			if(extracted != null)
-				line = extracted;
+			/*If input file is empty just return an empty string, if not just extract ALL the data, not only the first line.
+			 * For files that don't fit in memory use HuffmanStream, which compresses block by block instead*/
+			StringBuilder extracted = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				extracted.append(buffer, 0, read);
+			line = extracted.toString();
 
 		} catch (FileNotFoundException e) {
 
@@ -86,14 +106,30 @@ public class HuffmanCoding {
 				}
 
 		}
+		Metrics.stage(Stage.LOAD_DATA, start, line.length(), line.length(), line.length());
 		return line;
 	}
 
+	/**
+	 * Receives a file named in parameter inputFile and maps it into memory, instead of reading it into a String.
+	 * 
+	 * This is the byte oriented version of load_data(): nothing is copied or decoded as characters,
+	 * the operating system pages the file in as it's used, and files larger than 2 GB are handled as several mapped windows.
+	 * Use compute_histogram(MappedInput) to count it and HuffmanStream.compress(MappedInput, OutputStream) to compress it.
+	 * 
+	 * @param inputFile name of the file to be processed in the path inputData/
+	 * @return Mapped view of the file, which must be closed when done
+	 * @throws IOException if the file can't be opened
+	 */
+	public static MappedInput load_data_mapped(String inputFile) throws IOException {
+		return new MappedInput(Paths.get("inputData", inputFile));
+	}
+
 	/**
 	 * Receives a string and returns a Map with the symbol frequency distribution.
 	 * 
 	 * The frequency distribution consists of mapping each character to how many times that character appears in the string provided.
-	 * For this we use a hashtable (Separate Chaining).
+	 * For this we use a hashtable (open addressing, see HashTableOA).
 	 * We do this so later on we can construct our huffman tree using each K,V pair of frequencies
 	 * 
 	 * @param inputString string that was processed in load_data
@@ -101,28 +137,108 @@ public class HuffmanCoding {
 	 */
 	public static Map<String, Integer> compute_fd(String inputString) {
 
-		/* Much like other previous implementations made before of frequency distribution, this one is pretty straightforward.
-		 * We use a hashtable because, given by previous experimentations, it's the most efficient way to count frequencies */
-		Map<String, Integer> ht = new HashTableSC<String, Integer>(new SimpleHashFunction<String>());
-
-		if(!inputString.isEmpty()) {
-			/*Like before, we iterate through every character inside out string and count how many times it appears*/
-			for (Character character : inputString.toCharArray()) {
-	
-				/* If it's in the map, add one to the frequency, 
-				 * if not just add it with a frequency of 1 because it's the first time we see it*/
-				String letter =String.valueOf(character);
-				if (!ht.containsKey(letter)) {
-					ht.put(letter, 1);
-				} else {
-					ht.put(letter, ht.get(letter) + 1);
-				}
-			}
-		}
+		/* We still return a hashtable so the rest of the algorithm can work with characters as keys,
+		 * but the counting itself is done in a primitive histogram (see compute_histogram() below).
+		 * This way we only touch the hashtable once per DIFFERENT character, instead of once per character */
+		long start = Metrics.start();
+		Histogram histogram = inputString.isEmpty() ? null : countChars(inputString);
+		Map<String, Integer> ht = new HashTableOA<String, Integer>(histogram == null ? 1 : histogram.distinctSymbols(), new SimpleHashFunction<String>());
+
+		if(histogram != null)
+			for (int symbol : histogram.symbols())
+				ht.put(String.valueOf((char) symbol), Math.toIntExact(histogram.get(symbol)));
 
+		Metrics.stage(Stage.COMPUTE_FD, start, inputString.length(), 0, inputString.length());
 		return ht;
 	}
 
+	/**
+	 * Receives a string and returns a primitive Histogram with the frequency of every character.
+	 * 
+	 * Counting a character is just incrementing a counter in an array, so nothing is boxed or allocated per character.
+	 * The array is only as long as the largest character in the string, so plain ASCII text needs 128 counters.
+	 * If the string is short but has characters with very large values, we use a SparseHistogram instead, 
+	 * so a few Chinese characters don't allocate tens of thousands of counters.
+	 * 
+	 * @param inputString string that was processed in load_data
+	 * @return Histogram with the frequency distribution of the characters inside input string
+	 */
+	public static Histogram compute_histogram(String inputString) {
+		long start = Metrics.start();
+		Histogram histogram = countChars(inputString);
+		Metrics.stage(Stage.COMPUTE_FD, start, inputString.length(), 0, inputString.length());
+		return histogram;
+	}
+
+	/**
+	 * Receives a string and returns a Histogram of its symbols, where what a symbol is depends on the mode:
+	 * the UTF-8 bytes of the string, its UTF-16 chars (like compute_fd()), or its Unicode code points.
+	 * 
+	 * Build the code with huffman_flat_tree() and CanonicalCode.fromTree(), then encode and decode with the same mode.
+	 * 
+	 * @param inputString string that was processed in load_data
+	 * @param mode what counts as one symbol
+	 * @return Histogram with the frequency distribution of the symbols inside input string
+	 */
+	public static Histogram compute_histogram(String inputString, SymbolMode mode) {
+		long start = Metrics.start();
+		Histogram histogram = mode.count(inputString);
+		Metrics.stage(Stage.COMPUTE_FD, start, inputString.length(), 0, histogram.total());
+		return histogram;
+	}
+
+	/**
+	 * Receives a string and returns a Histogram of its tokens: words and the separators between them, or bigrams,
+	 * depending on how the alphabet was built (see TokenAlphabet.build()). Tokens that aren't in the alphabet's dictionary
+	 * are counted as their single characters.
+	 * 
+	 * Bigger symbols give a much better ratio on text and fewer decoding steps per character, 
+	 * but many more of them, so build the code with huffman_flat_tree() and CanonicalCode.fromTree().
+	 * 
+	 * @param inputString string that was processed in load_data
+	 * @param alphabet dictionary of tokens, usually built from the same string
+	 * @return Histogram with the frequency distribution of the symbols inside input string
+	 */
+	public static Histogram compute_histogram(String inputString, TokenAlphabet alphabet) {
+		long start = Metrics.start();
+		Histogram histogram = alphabet.count(inputString);
+		Metrics.stage(Stage.COMPUTE_FD, start, inputString.length(), 0, histogram.total());
+		return histogram;
+	}
+
+	/**
+	 * Receives a mapped file and returns a Histogram with the frequency of every byte.
+	 * 
+	 * The bytes are counted straight from the mapped memory, window by window, in parallel for large windows.
+	 * 
+	 * @param input file mapped by load_data_mapped()
+	 * @return Histogram with the frequency distribution of the 256 byte values
+	 * @throws IOException if the file can't be mapped
+	 */
+	public static Histogram compute_histogram(MappedInput input) throws IOException {
+		long start = Metrics.start();
+		Histogram histogram = input.countBytes();
+		Metrics.stage(Stage.COMPUTE_FD, start, input.size(), 0, input.size());
+		return histogram;
+	}
+
+	/**
+	 * Receives a string and returns a Histogram with the frequency of every character, counted in parallel.
+	 * 
+	 * Counting is "embarrassingly parallel": we split the string in chunks, every thread counts its own chunks
+	 * into private counters and we add the counters together at the end (see FrequencyCounter).
+	 * Strings shorter than FrequencyCounter.DEFAULT_THRESHOLD are still counted on the current thread.
+	 * 
+	 * @param inputString string that was processed in load_data
+	 * @return Histogram with the frequency distribution of the characters inside input string
+	 */
+	public static Histogram compute_histogram_parallel(String inputString) {
+		long start = Metrics.start();
+		Histogram histogram = inputString.length() <= FrequencyCounter.DEFAULT_THRESHOLD ? countChars(inputString) : FrequencyCounter.countChars(inputString);
+		Metrics.stage(Stage.COMPUTE_FD, start, inputString.length(), 0, inputString.length());
+		return histogram;
+	}
+
 	/**
 	 * Receives a Map with the frequency distribution and returns the root node of the corresponding Huffman tree.
 	 * 
@@ -133,16 +249,132 @@ public class HuffmanCoding {
 	 * @return Root Node that builds our huffman tree
 	 */
 	public static BTNode<Integer, String> huffman_tree(Map<String, Integer> fD) {
+		return huffman_tree(fD, TreeBuilder.BINARY_HEAP);
+	}
 
-		/* First we create a sorted list to put the lowest frequencies at the beginning of the list, so it's easier to extract
-		 * P.S. Using a SortedList is a good substitute for the Priority Queue that is mostly used in this algorithm */
-		SortedList<BTNode<Integer,String>> list = new SortedArrayList<>(fD.size());
+	/**
+	 * Same as huffman_tree() above, but lets us choose how the two lowest frequencies are found at every step (see TreeBuilder).
+	 * Every builder gives the same tree, so huffman_code() gives the same codes whichever one is used.
+	 * 
+	 * @param fD hashtable with our frequencies
+	 * @param builder strategy used to find the lowest frequencies
+	 * @return Root Node that builds our huffman tree
+	 */
+	public static BTNode<Integer, String> huffman_tree(Map<String, Integer> fD, TreeBuilder builder) {
+		long start = Metrics.start();
+		BTNode<Integer,String>[] leaves = newNodeArray(fD.size());
 		List<String> letters = fD.getKeys();
 		List<Integer> freq = fD.getValues();
 
-		/*Now we go through each K,V pair and add them to an instance of a node and add them in increasing order inside out SortedList*/
-		for (int i = 0; i < fD.size(); i++) list.add(new BTNode<Integer, String>(freq.get(i),letters.get(i)));
+		/*Now we go through each K,V pair and add them to an instance of a node*/
+		for (int i = 0; i < fD.size(); i++) leaves[i] = new BTNode<Integer, String>(freq.get(i),letters.get(i));
+
+		BTNode<Integer, String> root = buildTree(leaves, builder);
+		Metrics.stage(Stage.HUFFMAN_TREE, start, 0, 0, leaves.length);
+		return root;
+	}
 
+	/**
+	 * Receives a Histogram with the frequency distribution and returns the root node of the corresponding Huffman tree.
+	 * 
+	 * Does the same as huffman_tree() above, but reads the frequencies straight from the histogram made by compute_histogram(),
+	 * without going through a hashtable first.
+	 * 
+	 * @param histogram histogram with our frequencies
+	 * @return Root Node that builds our huffman tree
+	 */
+	public static BTNode<Integer, String> huffman_tree(Histogram histogram) {
+		return huffman_tree(histogram, TreeBuilder.BINARY_HEAP);
+	}
+
+	/**
+	 * Same as huffman_tree(Histogram), but lets us choose how the two lowest frequencies are found at every step (see TreeBuilder).
+	 * Every builder gives the same tree, so huffman_code() gives the same codes whichever one is used.
+	 * 
+	 * @param histogram histogram with our frequencies
+	 * @param builder strategy used to find the lowest frequencies
+	 * @return Root Node that builds our huffman tree
+	 */
+	public static BTNode<Integer, String> huffman_tree(Histogram histogram, TreeBuilder builder) {
+		if (histogram.isEmpty())
+			throw new IllegalArgumentException("Histogram cannot be empty.");
+
+		if (histogram.maxSymbol() > Character.MAX_VALUE)
+			throw new IllegalArgumentException("Leaves hold a single char, use huffman_flat_tree() for code points.");
+		long start = Metrics.start();
+		int[] symbols = histogram.symbols();
+		BTNode<Integer,String>[] leaves = newNodeArray(symbols.length);
+		for (int i = 0; i < symbols.length; i++)
+			leaves[i] = new BTNode<Integer, String>(Math.toIntExact(histogram.get(symbols[i])), String.valueOf((char) symbols[i]));
+
+		BTNode<Integer, String> root = buildTree(leaves, builder);
+		Metrics.stage(Stage.HUFFMAN_TREE, start, 0, 0, leaves.length);
+		return root;
+	}
+
+	/**
+	 * Receives a Histogram with the frequency distribution and returns a compact, array based Huffman tree.
+	 * 
+	 * A BTNode tree keeps a boxed frequency and a String with ALL the characters below every node, 
+	 * so building it concatenates strings over and over. A FlatHuffmanTree keeps the frequencies, children and characters
+	 * in parallel arrays instead, which is much smaller and faster to walk, and scales to very large alphabets.
+	 * Use CanonicalCode.fromTree() to turn it into codes.
+	 * 
+	 * @param histogram histogram with our frequencies
+	 * @return Flattened huffman tree
+	 */
+	public static FlatHuffmanTree huffman_flat_tree(Histogram histogram) {
+		long start = Metrics.start();
+		FlatHuffmanTree tree = FlatHuffmanTree.build(histogram);
+		Metrics.stage(Stage.HUFFMAN_TREE, start, 0, 0, tree.leafCount());
+		return tree;
+	}
+
+	/**
+	 * Builds the Huffman tree for the given leaves with the chosen strategy.
+	 * 
+	 * @param leaves one leaf for every character, in any order
+	 * @param builder strategy used to find the lowest frequencies
+	 * @return Root Node that builds our huffman tree
+	 */
+	private static BTNode<Integer, String> buildTree(BTNode<Integer,String>[] leaves, TreeBuilder builder) {
+		if (leaves.length == 0)
+			throw new IllegalArgumentException("There must be at least one character.");
+
+		switch (builder) {
+		case SORTED_LIST:
+			/* First we create a sorted list to put the lowest frequencies at the beginning of the list, so it's easier to extract
+			 * P.S. Using a SortedList is a good substitute for the Priority Queue that is mostly used in this algorithm */
+			SortedList<BTNode<Integer,String>> list = new SortedArrayList<>(leaves.length);
+			for (BTNode<Integer,String> leaf : leaves) list.add(leaf);
+			return mergeLowestFrequencies(list);
+
+		case BINARY_HEAP:
+			/* The same idea, but a heap only needs O(log n) steps to remove the lowest frequency or add a merged node */
+			PriorityQueue<BTNode<Integer,String>> heap = new BinaryHeapPriorityQueue<>(leaves.length);
+			for (BTNode<Integer,String> leaf : leaves) heap.add(leaf);
+			while (heap.size() > 1) {
+				BTNode<Integer, String> leftChild = heap.removeMin();
+				BTNode<Integer, String> rightChild = heap.removeMin();
+				heap.add(newParent(leftChild, rightChild));
+			}
+			return heap.removeMin();
+
+		case TWO_QUEUE:
+			return mergeWithTwoQueues(leaves);
+
+		default:
+			throw new IllegalArgumentException("Unknown tree builder: " + builder);
+		}
+	}
+
+	/**
+	 * Merges the two lowest frequencies of the list into one node until only one node is left, the root of the tree.
+	 * 
+	 * @param list SortedList with a leaf for every character, in increasing order of frequency
+	 * @return Root Node that builds our huffman tree
+	 */
+	private static BTNode<Integer, String> mergeLowestFrequencies(SortedList<BTNode<Integer,String>> list) {
 		/*If the list has more than one node we do the following*/
 		while (list.size() > 1) {
 			/*We take the first two lowest frequencies of the SortedList and make them into separate nodes
@@ -158,16 +390,8 @@ public class HuffmanCoding {
 			BTNode<Integer, String> rightChild = list.removeIndex(0);
 
 			/* We make the node we're going to use to "merge" the two lowest frequencies into one, 
-			 * thus making this node the "parent" of the left and right nodes extracted from the SortedList */
-			BTNode<Integer,String> parent = new BTNode<Integer,String>();
-
-			/* Now all we do is we set the parent's left and right children be the extracted nodes from the SortedList,
-			 * We also merge the frequencies and the keys */
-			parent.setLeftChild(leftChild);
-			parent.setRightChild(rightChild);
-
-			parent.setKey(leftChild.getKey() + rightChild.getKey());
-			parent.setValue(leftChild.getValue() + rightChild.getValue());
+			 * thus making this node the "parent" of the left and right nodes extracted from the SortedList (see newParent()) */
+			BTNode<Integer,String> parent = newParent(leftChild, rightChild);
 
 			/* Next we add this parent node back to the SortedList and we rinse and repeat 
 			 * until the only merged node left on the list is the root node of the tree,
@@ -207,7 +431,8 @@ public class HuffmanCoding {
 	public static Map<String, String> huffman_code(BTNode<Integer,String> huffmanRoot) {
 		/* This is basically the method that makes and organizes all of our things, the real work is in the recursive helper method.
 		 * Look up buidPrefixCode() at the end of the code to see what the recursive method does */
-		Map<String,String> ht = new HashTableSC<String, String>(new SimpleHashFunction<String>());
+		long start = Metrics.start();
+		Map<String,String> ht = new HashTableOA<String, String>(new SimpleHashFunction<String>());
 		
 		/*If the string we're trying to encode has only one character, the huffman code will be just 1, because it will only be 1 bit*/
 		if(huffmanRoot.getValue().length() == 1) {
@@ -215,9 +440,85 @@ public class HuffmanCoding {
 		}else
 			/*If it has more than one character, we build the code according to our tree*/
 			buildPrefixCode(ht,huffmanRoot,"");
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, ht.size());
 		return ht;	
 	}
 
+	/**
+	 * Receives the root of a Huffman tree and returns the same codes as huffman_code(), but as a primitive EncodingTable.
+	 * 
+	 * Instead of a hashtable from Strings to Strings of 0s and 1s, the table has the code of every character in a long[]
+	 * and its length in a byte[], both indexed by the character itself. That is what makes encode() fast.
+	 * 
+	 * @param huffmanRoot Root Node of huffman tree so we can traverse and construct the prefix codes
+	 * @return EncodingTable with the prefix code of every character
+	 */
+	public static EncodingTable huffman_code_table(BTNode<Integer,String> huffmanRoot) {
+		long start = Metrics.start();
+		EncodingTable table = EncodingTable.fromTree(huffmanRoot);
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, huffmanRoot.getValue().length());
+		return table;
+	}
+
+	/**
+	 * Receives the root of a Huffman tree and returns the canonical Huffman code with the same code lengths.
+	 * 
+	 * The codes generated by huffman_code() depend on the shape of the tree, so a decoder would need the whole tree.
+	 * A canonical code only keeps how many bits each character gets, and hands out the codes in order
+	 * (shortest codes first, ties broken by character), so the only thing a decoder needs is the list of lengths.
+	 * See CanonicalCode.writeHeader() for that compact header.
+	 * 
+	 * @param huffmanRoot Root Node of huffman tree, used to find the code length of each character
+	 * @return Canonical code with the same code lengths as the tree
+	 */
+	public static CanonicalCode huffman_canonical_code(BTNode<Integer,String> huffmanRoot) {
+		long start = Metrics.start();
+		CodeTableBuiltEvent event = new CodeTableBuiltEvent();
+		event.begin();
+		CanonicalCode code = CanonicalCode.fromTree(huffmanRoot);
+		codeBuilt(code, start, event, 0);
+		return code;
+	}
+
+	/**
+	 * Receives the root of a Huffman tree and returns a canonical code where no code is longer than maxLength bits.
+	 * 
+	 * Very skewed frequencies can make the tree as deep as there are characters, 
+	 * so the codes of the rarest characters get too long to decode with a single table lookup.
+	 * Limiting the length (for example to 11, 12 or 15 bits) costs a tiny bit of compression 
+	 * but keeps the decoding tables small (see LengthLimiter).
+	 * 
+	 * @param huffmanRoot Root Node of huffman tree, used to find the code length of each character
+	 * @param maxLength Longest code length allowed
+	 * @return Canonical code with the code lengths of the tree, limited to maxLength
+	 */
+	public static CanonicalCode huffman_canonical_code(BTNode<Integer,String> huffmanRoot, int maxLength) {
+		long start = Metrics.start();
+		CodeTableBuiltEvent event = new CodeTableBuiltEvent();
+		event.begin();
+		CanonicalCode code = CanonicalCode.fromTree(huffmanRoot, maxLength);
+		codeBuilt(code, start, event, maxLength);
+		return code;
+	}
+
+	/**
+	 * Receives a Histogram and returns a canonical code for it from the cache, building one only when the cache has none
+	 * close enough to optimal (see CodeTableCache).
+	 * 
+	 * When many small, similar messages are compressed, building the tree and the tables for every one of them
+	 * costs more than encoding them; with the cache, those steps only run once per kind of message.
+	 * 
+	 * @param histogram histogram of the message to encode, from compute_histogram()
+	 * @param cache cache shared by every message
+	 * @return Canonical code that has a prefix code for every symbol of the histogram
+	 */
+	public static CanonicalCode huffman_canonical_code(Histogram histogram, CodeTableCache cache) {
+		long start = Metrics.start();
+		CanonicalCode code = cache.get(histogram).getCode();
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, code.getSymbolCount());
+		return code;
+	}
+
 	/**
 	 * Receives the Huffman code map and the input string, and returns the encoded string.
 	 * 
@@ -229,14 +530,251 @@ public class HuffmanCoding {
 	 * @return The fully encoded string using huffman prefix codes
 	 */
 	public static String encode(Map<String, String> encodingMap, String inputString) {
-		String encodedMessage = "";
+		/* A StringBuilder keeps this linear, concatenating Strings would copy the whole message on every character */
+		long start = Metrics.start();
+		StringBuilder encodedMessage = new StringBuilder();
 
-		for (Character character : inputString.toCharArray()) {
-			String letter = String.valueOf(character);
-			encodedMessage += encodingMap.get(letter);
+		for (int i = 0; i < inputString.length(); i++) {
+			String letter = String.valueOf(inputString.charAt(i));
+			encodedMessage.append(encodingMap.get(letter));
 		}
 
-		return encodedMessage;
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (encodedMessage.length() + 7) / 8, inputString.length());
+		return encodedMessage.toString();
+	}
+
+	/**
+	 * Receives the Huffman code map and the input string, and writes the encoded message as packed bits.
+	 * 
+	 * This does the same as encode() above, but every bit takes one bit of memory instead of a whole character.
+	 * The bits are appended to the given writer, so the same writer can be reset and reused between messages.
+	 * 
+	 * @param encodingMap "Lookup Table" with all the mapped prefix codes 
+	 * @param inputString Original string 
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode(Map<String, String> encodingMap, String inputString, BitWriter out) {
+		long start = Metrics.start();
+		long startBit = out.bitLength();
+
+		for (int i = 0; i < inputString.length(); i++) {
+			String code = encodingMap.get(String.valueOf(inputString.charAt(i)));
+			if (code == null)
+				throw new IllegalArgumentException("No prefix code for symbol: " + inputString.charAt(i));
+			out.writeCode(code);
+		}
+
+		long bits = out.bitLength() - startBit;
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (bits + 7) / 8, inputString.length());
+		return bits;
+	}
+
+	/**
+	 * Receives a canonical code and the input string, and writes the encoded message as packed bits.
+	 * 
+	 * Since the canonical code keeps its codes in arrays indexed by character, each character is one array lookup.
+	 * 
+	 * @param code Canonical code built by huffman_canonical_code()
+	 * @param inputString Original string 
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode(CanonicalCode code, String inputString, BitWriter out) {
+		return encode(code.getEncodingTable(), inputString, out);
+	}
+
+	/**
+	 * Receives an encoding table and the input string, and writes the encoded message as packed bits.
+	 * 
+	 * The table keeps the code bits and lengths in arrays indexed by character, 
+	 * so encoding a character is two array loads: nothing is boxed, hashed or allocated per character.
+	 * 
+	 * @param table Encoding table built by huffman_code_table() or CanonicalCode.getEncodingTable()
+	 * @param inputString Original string 
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode(EncodingTable table, String inputString, BitWriter out) {
+		long start = Metrics.start();
+		long bits = table.encode(inputString, 0, inputString.length(), out);
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (bits + 7) / 8, inputString.length());
+		return bits;
+	}
+
+	/**
+	 * Receives an encoding table and the input string, and writes the symbols of the string in the given mode as packed bits.
+	 * 
+	 * @param table Encoding table built from compute_histogram(inputString, mode)
+	 * @param inputString Original string 
+	 * @param mode what counts as one symbol, the same one the table was built for
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode(EncodingTable table, String inputString, SymbolMode mode, BitWriter out) {
+		long start = Metrics.start();
+		long bits = mode.encode(table, inputString, out);
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (bits + 7) / 8, inputString.length());
+		return bits;
+	}
+
+	/**
+	 * Receives an encoding table and the input string, and writes the tokens of the string as packed bits.
+	 * 
+	 * @param table Encoding table built from compute_histogram(inputString, alphabet)
+	 * @param inputString Original string 
+	 * @param alphabet dictionary of tokens the table was built for
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode(EncodingTable table, String inputString, TokenAlphabet alphabet, BitWriter out) {
+		long start = Metrics.start();
+		long bits = alphabet.encode(table, inputString, out);
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (bits + 7) / 8, inputString.length());
+		return bits;
+	}
+
+	/**
+	 * Receives a static table and the input string, and returns the packed message without any code header.
+	 * 
+	 * For strings of a few dozen bytes (like the ones in inputData/) the header of a code costs more than the code saves,
+	 * so a table trained beforehand on similar strings is used instead (see StaticCodeTable and StaticTableRegistry.builtIn()).
+	 * The message only carries the id of its table, so there is no histogram, tree or header per message.
+	 * 
+	 * @param table Trained table, for example StaticTableRegistry.builtIn().get(StaticTableRegistry.TEXT)
+	 * @param inputString Original string, encoded as UTF-8 bytes
+	 * @return The packed message
+	 */
+	public static byte[] encode(StaticCodeTable table, String inputString) {
+		long start = Metrics.start();
+		byte[] message = inputString.getBytes(StandardCharsets.UTF_8);
+		byte[] encoded = table.encode(message);
+		Metrics.stage(Stage.ENCODE, start, message.length, encoded.length, message.length);
+		return encoded;
+	}
+
+	/**
+	 * Same as encode(EncodingTable, String, BitWriter), but the string is split into blocks that are encoded on several threads.
+	 * 
+	 * Every block is encoded into its own BitWriter, and then the blocks are stitched together one right after the other,
+	 * so the bits written are exactly the same as with a single thread (see ParallelEncoder).
+	 * Strings shorter than one block are just encoded on the current thread.
+	 * 
+	 * @param table Encoding table built by huffman_code_table() or CanonicalCode.getEncodingTable()
+	 * @param inputString Original string 
+	 * @param out BitWriter that receives the packed prefix codes
+	 * @return The exact number of bits written for this message
+	 */
+	public static long encode_parallel(EncodingTable table, String inputString, BitWriter out) {
+		if (inputString.length() <= ParallelEncoder.DEFAULT_BLOCK_SIZE)
+			return encode(table, inputString, out);
+		long start = Metrics.start();
+		long bits = ParallelEncoder.encode(table, inputString, 0, inputString.length(), out);
+		Metrics.stage(Stage.ENCODE, start, inputString.length(), (bits + 7) / 8, inputString.length());
+		return bits;
+	}
+
+	/**
+	 * Receives the Huffman code map and a packed encoded message, and returns the original string.
+	 * 
+	 * This is the inverse of encode(). Rather than walking the tree bit by bit from the root to a leaf,
+	 * the decoder builds lookup tables from the prefix codes and resolves several bits per lookup (see HuffmanDecoder).
+	 * 
+	 * @param encodingMap "Lookup Table" with all the mapped prefix codes used to encode the message
+	 * @param encoded packed bits produced by encode()
+	 * @param bitLength exact number of bits returned by encode()
+	 * @return The decoded string
+	 */
+	public static String decode(Map<String, String> encodingMap, byte[] encoded, long bitLength) {
+		long start = Metrics.start();
+		String decoded = new HuffmanDecoder(encodingMap).decode(encoded, bitLength);
+		Metrics.stage(Stage.DECODE, start, (bitLength + 7) / 8, decoded.length(), decoded.length());
+		return decoded;
+	}
+
+	/**
+	 * Receives the known static tables and a packed message written by encode(StaticCodeTable, String), 
+	 * and returns the original string. The message says which table it was encoded with.
+	 * 
+	 * @param tables registry with the table the message was encoded with
+	 * @param encoded packed message
+	 * @return The decoded string
+	 */
+	public static String decode(StaticTableRegistry tables, byte[] encoded) {
+		long start = Metrics.start();
+		byte[] decoded = tables.decode(encoded);
+		Metrics.stage(Stage.DECODE, start, encoded.length, decoded.length, decoded.length);
+		return new String(decoded, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Receives a canonical code and a packed message encoded in the given mode, and returns the original string.
+	 * 
+	 * @param code Canonical code the message was encoded with
+	 * @param encoded packed bits produced by encode()
+	 * @param bitLength exact number of bits returned by encode()
+	 * @param mode what counts as one symbol, the same one used to encode
+	 * @return The decoded string
+	 */
+	public static String decode(CanonicalCode code, byte[] encoded, long bitLength, SymbolMode mode) {
+		long start = Metrics.start();
+		String decoded = mode.decode(code.newDecoder(), encoded, bitLength);
+		Metrics.stage(Stage.DECODE, start, (bitLength + 7) / 8, decoded.length(), decoded.length());
+		return decoded;
+	}
+
+	/**
+	 * Receives a canonical code and a packed message of tokens, and returns the original string.
+	 * 
+	 * @param code Canonical code the message was encoded with
+	 * @param encoded packed bits produced by encode()
+	 * @param bitLength exact number of bits returned by encode()
+	 * @param alphabet dictionary of tokens used to encode
+	 * @return The decoded string
+	 */
+	public static String decode(CanonicalCode code, byte[] encoded, long bitLength, TokenAlphabet alphabet) {
+		long start = Metrics.start();
+		String decoded = alphabet.decode(code.newDecoder(), encoded, bitLength);
+		Metrics.stage(Stage.DECODE, start, (bitLength + 7) / 8, decoded.length(), decoded.length());
+		return decoded;
+	}
+
+	/**
+	 * Receives a file named in parameter inputFile and compresses it into the container file outputFile,
+	 * instead of only printing the encoded bits like process_results() does.
+	 * 
+	 * The container holds independently decodable blocks, each with a checksum, and an index of where every block starts,
+	 * so it can be read back with a ContainerReader in parallel or from any position.
+	 * 
+	 * @param inputFile name of the file to be compressed in the path inputData/
+	 * @param outputFile path of the container file to create
+	 * @return size of the container file in bytes
+	 * @throws IOException if either file fails
+	 */
+	public static long save_compressed(String inputFile, String outputFile) throws IOException {
+		/* The input is opened first, so a missing input doesn't leave an empty container behind */
+		try (InputStream in = Files.newInputStream(Paths.get("inputData", inputFile))) {
+			OutputStream file = new BufferedOutputStream(new FileOutputStream(outputFile));
+			ContainerWriter out = null;
+			try {
+				out = new ContainerWriter(file);
+				in.transferTo(out);
+				out.close();
+				return out.compressedSize();
+			} catch (IOException | RuntimeException e) {
+				/* A partial copy must not look like a complete container, so it gets no index and is deleted */
+				try {
+					if (out != null)
+						out.abort();
+					else
+						file.close();
+					Files.deleteIfExists(Paths.get(outputFile));
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				throw e;
+			}
+		}
 	}
 
 	/**
@@ -311,6 +849,111 @@ public class HuffmanCoding {
 
 	////PRIVATE METHODS USED INSIDE MAIN METHODS//////////////////////////////////////////////////////////////////
 
+	/**
+	 * Merges two nodes into a new parent node, whose frequency and characters are the ones of both children together.
+	 * 
+	 * @param leftChild node with the lowest frequency
+	 * @param rightChild node with the second lowest frequency
+	 * @return the new parent node
+	 */
+	private static BTNode<Integer, String> newParent(BTNode<Integer, String> leftChild, BTNode<Integer, String> rightChild) {
+		BTNode<Integer,String> parent = new BTNode<Integer,String>();
+
+		/* Now all we do is we set the parent's left and right children be the extracted nodes,
+		 * We also merge the frequencies and the keys */
+		parent.setLeftChild(leftChild);
+		parent.setRightChild(rightChild);
+
+		parent.setKey(leftChild.getKey() + rightChild.getKey());
+		parent.setValue(leftChild.getValue() + rightChild.getValue());
+		return parent;
+	}
+
+	/**
+	 * Builds the Huffman tree with two queues, in linear time once the leaves are sorted.
+	 * 
+	 * The leaves wait in the first queue in increasing order. Every merged node has a frequency that is at least as large
+	 * as the one merged before it, so appending them to a second queue keeps that queue sorted too; a merged node only
+	 * moves ahead of the waiting ones that tie with it on frequency, to keep the order of compareTo().
+	 * The lowest node is then always at the front of one of the two queues, so this gives the same tree as the other builders.
+	 * 
+	 * @param leaves one leaf for every character, in any order (this array gets sorted)
+	 * @return Root Node that builds our huffman tree
+	 */
+	private static BTNode<Integer, String> mergeWithTwoQueues(BTNode<Integer,String>[] leaves) {
+		Arrays.sort(leaves); /* Uses compareTo(), so ties are broken like everywhere else */
+
+		BTNode<Integer,String>[] merged = newNodeArray(Math.max(1, leaves.length - 1));
+		int leafFront = 0, mergedFront = 0, mergedBack = 0;
+
+		for (int remaining = leaves.length; remaining > 1; remaining--) {
+			BTNode<Integer, String> leftChild;
+			if (mergedFront == mergedBack || (leafFront < leaves.length && leaves[leafFront].compareTo(merged[mergedFront]) <= 0))
+				leftChild = leaves[leafFront++];
+			else
+				leftChild = merged[mergedFront++];
+
+			BTNode<Integer, String> rightChild;
+			if (mergedFront == mergedBack || (leafFront < leaves.length && leaves[leafFront].compareTo(merged[mergedFront]) <= 0))
+				rightChild = leaves[leafFront++];
+			else
+				rightChild = merged[mergedFront++];
+
+			BTNode<Integer, String> parent = newParent(leftChild, rightChild);
+			int i = mergedBack++;
+			for (; i > mergedFront && merged[i - 1].compareTo(parent) > 0; i--)
+				merged[i] = merged[i - 1];
+			merged[i] = parent;
+		}
+
+		return leaves.length == 1 ? leaves[0] : merged[mergedFront];
+	}
+
+	/**
+	 * Counts the characters of the string for compute_fd() and compute_histogram(), without reporting it to Metrics.
+	 * 
+	 * The array is only as long as the largest character in the string, so plain ASCII text needs 128 counters.
+	 * If the string is short but has characters with very large values, we use a SparseHistogram instead.
+	 * 
+	 * @param inputString string that was processed in load_data
+	 * @return Histogram with the frequency distribution of the characters inside input string
+	 */
+	private static Histogram countChars(String inputString) {
+		int maxChar = 0;
+		for (int i = 0; i < inputString.length(); i++)
+			maxChar = Math.max(maxChar, inputString.charAt(i));
+
+		if (maxChar >= SPARSE_ALPHABET_SIZE && inputString.length() < maxChar) {
+			Histogram histogram = new SparseHistogram();
+			for (int i = 0; i < inputString.length(); i++)
+				histogram.increment(inputString.charAt(i));
+			return histogram;
+		}
+
+		DenseHistogram histogram = new DenseHistogram(maxChar + 1);
+		histogram.countChars(inputString, 0, inputString.length());
+		return histogram;
+	}
+
+	/**
+	 * Reports a canonical code built by huffman_canonical_code() to Metrics and Flight Recorder
+	 * 
+	 * @param code the new code
+	 * @param start what Metrics.start() returned before building it
+	 * @param event event begun before building it
+	 * @param maxLength length limit of the code, 0 if it has none
+	 */
+	private static void codeBuilt(CanonicalCode code, long start, CodeTableBuiltEvent event, int maxLength) {
+		Metrics.stage(Stage.HUFFMAN_CODE, start, 0, 0, code.getSymbolCount());
+		Metrics.codeBuilt(code.getSymbolCount(), code.getMaxLength());
+		event.finish("HuffmanCoding", code.getSymbolCount(), code.getMaxLength(), maxLength);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static BTNode<Integer,String>[] newNodeArray(int size) {
+		return (BTNode<Integer,String>[]) new BTNode[size];
+	}
+
 	/**
 	 * Recursive helper method for the huffman_code() method above
 	 * 
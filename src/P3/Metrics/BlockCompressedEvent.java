@@ -0,0 +1,79 @@
+package P3.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for every block HuffmanStream or ContainerWriter compresses: counting, building the code and encoding.
+ *
+ *   BlockCompressedEvent event = new BlockCompressedEvent();
+ *   event.begin();
+ *   ...compress the block...
+ *   event.finish(...);
+ *
+ * While no recording has the event enabled, finish() doesn't even set the fields.
+ */
+@Name("P3.Huffman.BlockCompressed")
+@Label("Block Compressed")
+@Category({ "Huffman", "Compression" })
+@Description("A block of input counted, given a code and encoded")
+public class BlockCompressedEvent extends Event {
+
+	@Label("Source")
+	@Description("HuffmanStream or ContainerWriter")
+	public String source;
+
+	@Label("Original Size")
+	@DataAmount
+	public int originalSize;
+
+	@Label("Compressed Size")
+	@Description("Packed bits of the block, with the code header if it has one")
+	@DataAmount
+	public int compressedSize;
+
+	@Label("Symbols")
+	@Description("Number of different byte values in the block")
+	public int symbols;
+
+	@Label("Shortest Code")
+	public int minCodeLength;
+
+	@Label("Longest Code")
+	public int maxCodeLength;
+
+	@Label("Bits Per Byte")
+	public double bitsPerByte;
+
+	@Label("New Table")
+	@Description("Whether the block has a code of its own, instead of reusing the previous block's")
+	public boolean newTable;
+
+	@Label("Interleaved")
+	public boolean interleaved;
+
+	/**
+	 * Ends the event and commits it, if a recording wants it
+	 */
+	public void finish(String source, int originalSize, long compressedBits, int symbols, int minCodeLength, int maxCodeLength,
+			boolean newTable, boolean interleaved) {
+		end();
+		if (!shouldCommit())
+			return;
+		this.source = source;
+		this.originalSize = originalSize;
+		this.compressedSize = (int) ((compressedBits + 7) >>> 3);
+		this.symbols = symbols;
+		this.minCodeLength = minCodeLength;
+		this.maxCodeLength = maxCodeLength;
+		this.bitsPerByte = originalSize == 0 ? 0 : (double) compressedBits / originalSize;
+		this.newTable = newTable;
+		this.interleaved = interleaved;
+		commit();
+	}
+
+}
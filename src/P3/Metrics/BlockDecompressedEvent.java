@@ -0,0 +1,54 @@
+package P3.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for every block HuffmanStream or ContainerReader decompresses, header included.
+ * Used like BlockCompressedEvent: begin() before the block, finish() after it.
+ */
+@Name("P3.Huffman.BlockDecompressed")
+@Label("Block Decompressed")
+@Category({ "Huffman", "Decompression" })
+@Description("A block of compressed data decoded")
+public class BlockDecompressedEvent extends Event {
+
+	@Label("Source")
+	@Description("HuffmanStream or ContainerReader")
+	public String source;
+
+	@Label("Compressed Size")
+	@DataAmount
+	public int compressedSize;
+
+	@Label("Original Size")
+	@DataAmount
+	public int originalSize;
+
+	@Label("New Table")
+	@Description("Whether the block's code was read from its header, instead of reused from an earlier block")
+	public boolean newTable;
+
+	@Label("Interleaved")
+	public boolean interleaved;
+
+	/**
+	 * Ends the event and commits it, if a recording wants it
+	 */
+	public void finish(String source, int compressedSize, int originalSize, boolean newTable, boolean interleaved) {
+		end();
+		if (!shouldCommit())
+			return;
+		this.source = source;
+		this.compressedSize = compressedSize;
+		this.originalSize = originalSize;
+		this.newTable = newTable;
+		this.interleaved = interleaved;
+		commit();
+	}
+
+}
@@ -0,0 +1,47 @@
+package P3.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for every canonical code built from frequencies: the tree, the code lengths and length limiting.
+ * Used like BlockCompressedEvent: begin() before the build, finish() after it.
+ */
+@Name("P3.Huffman.CodeTableBuilt")
+@Label("Code Table Built")
+@Category({ "Huffman", "Compression" })
+@Description("A Huffman tree and canonical code built from a histogram")
+public class CodeTableBuiltEvent extends Event {
+
+	@Label("Source")
+	@Description("What needed the code: HuffmanStream, ContainerWriter, CodeTableCache or HuffmanCoding")
+	public String source;
+
+	@Label("Symbols")
+	public int symbols;
+
+	@Label("Longest Code")
+	public int maxCodeLength;
+
+	@Label("Length Limit")
+	@Description("Longest code allowed, 0 if the code is not limited")
+	public int lengthLimit;
+
+	/**
+	 * Ends the event and commits it, if a recording wants it
+	 */
+	public void finish(String source, int symbols, int maxCodeLength, int lengthLimit) {
+		end();
+		if (!shouldCommit())
+			return;
+		this.source = source;
+		this.symbols = symbols;
+		this.maxCodeLength = maxCodeLength;
+		this.lengthLimit = lengthLimit;
+		commit();
+	}
+
+}
@@ -0,0 +1,155 @@
+package P3.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Listener that adds up everything Metrics reports: per stage latency histograms, time, bytes in and out and symbols,
+ * plus CodeTableCache hits and the longest code built. Readable from code with getStage(), or over JMX once registered:
+ *
+ *   CompressionStats stats = CompressionStats.register();   // starts measuring, shows up in JConsole
+ *   ...
+ *   stats.unregister();                                     // stops measuring
+ *
+ * Counters are LongAdders, so threads compressing at the same time don't fight over a cache line.
+ */
+public class CompressionStats implements MetricsListener, CompressionStatsMXBean {
+
+	public static final String OBJECT_NAME = "P3.Huffman:type=CompressionStats";
+
+	/**
+	 * Running totals of one stage
+	 */
+	private static class Totals {
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder nanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder bytesIn = new LongAdder();
+		private final LongAdder bytesOut = new LongAdder();
+		private final LongAdder symbols = new LongAdder();
+	}
+
+	// private fields
+	private final Totals[] stages = new Totals[Stage.values().length];
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder codesBuilt = new LongAdder();
+	private final AtomicInteger maxCodeLength = new AtomicInteger();
+
+	public CompressionStats() {
+		for (int i = 0; i < stages.length; i++)
+			stages[i] = new Totals();
+	}
+
+	/**
+	 * Creates stats, adds them as a listener and registers them with the platform MBean server under OBJECT_NAME
+	 *
+	 * @return the registered stats
+	 * @throws JMException if something is already registered under OBJECT_NAME
+	 */
+	public static CompressionStats register() throws JMException {
+		CompressionStats stats = new CompressionStats();
+		ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(OBJECT_NAME));
+		Metrics.addListener(stats);
+		return stats;
+	}
+
+	/**
+	 * Stops listening and removes the stats from the platform MBean server
+	 *
+	 * @throws JMException if they were not registered
+	 */
+	public void unregister() throws JMException {
+		Metrics.removeListener(this);
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+	}
+
+	@Override
+	public void stageCompleted(Stage stage, long nanos, long bytesIn, long bytesOut, long symbols) {
+		Totals totals = stages[stage.ordinal()];
+		totals.latency.record(nanos);
+		totals.nanos.add(nanos);
+		totals.maxNanos.accumulateAndGet(nanos, Math::max);
+		totals.bytesIn.add(bytesIn);
+		totals.bytesOut.add(bytesOut);
+		totals.symbols.add(symbols);
+	}
+
+	@Override
+	public void codeBuilt(int symbols, int maxCodeLength) {
+		codesBuilt.increment();
+		this.maxCodeLength.accumulateAndGet(maxCodeLength, Math::max);
+	}
+
+	@Override
+	public void cacheLookup(boolean hit) {
+		(hit ? cacheHits : cacheMisses).increment();
+	}
+
+	/**
+	 * @return snapshot of the totals of the stage
+	 */
+	public StageSummary getStage(Stage stage) {
+		Totals totals = stages[stage.ordinal()];
+		return new StageSummary(totals.latency.count(), totals.nanos.sum(), totals.maxNanos.get(),
+				totals.latency.percentile(0.5), totals.latency.percentile(0.99),
+				totals.bytesIn.sum(), totals.bytesOut.sum(), totals.symbols.sum());
+	}
+
+	@Override
+	public Map<String, StageSummary> getStages() {
+		Map<String, StageSummary> result = new LinkedHashMap<String, StageSummary>();
+		for (Stage stage : Stage.values()) {
+			StageSummary summary = getStage(stage);
+			if (summary.getCount() > 0)
+				result.put(stage.name(), summary);
+		}
+		return result;
+	}
+
+	@Override
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+	@Override
+	public double getCacheHitRatio() {
+		long hits = cacheHits.sum(), lookups = hits + cacheMisses.sum();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+	@Override
+	public long getCodesBuilt() {
+		return codesBuilt.sum();
+	}
+	@Override
+	public int getMaxCodeLength() {
+		return maxCodeLength.get();
+	}
+
+	@Override
+	public void reset() {
+		for (Totals totals : stages) {
+			totals.latency.reset();
+			totals.nanos.reset();
+			totals.maxNanos.set(0);
+			totals.bytesIn.reset();
+			totals.bytesOut.reset();
+			totals.symbols.reset();
+		}
+		cacheHits.reset();
+		cacheMisses.reset();
+		codesBuilt.reset();
+		maxCodeLength.set(0);
+	}
+
+}
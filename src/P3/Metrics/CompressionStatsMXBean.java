@@ -0,0 +1,39 @@
+package P3.Metrics;
+
+import java.util.Map;
+
+/**
+ * What CompressionStats shows over JMX, under the name CompressionStats.OBJECT_NAME
+ */
+public interface CompressionStatsMXBean {
+
+	/**
+	 * @return summary of every stage that ran at least once, by stage name
+	 */
+	Map<String, StageSummary> getStages();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	/**
+	 * @return hits over lookups of every CodeTableCache, 0 before the first lookup
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * @return number of canonical codes built
+	 */
+	long getCodesBuilt();
+
+	/**
+	 * @return length of the longest code of any canonical code built
+	 */
+	int getMaxCodeLength();
+
+	/**
+	 * Starts every count over
+	 */
+	void reset();
+
+}
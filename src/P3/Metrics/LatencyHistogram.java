@@ -0,0 +1,64 @@
+package P3.Metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in power of two buckets of nanoseconds, so recording is one increment and the memory is fixed.
+ *
+ * Bucket i holds durations from 2^i up to 2^(i+1) - 1 ns (bucket 0 also holds 0), so a percentile is only known
+ * within a factor of two; percentile() returns the top of its bucket. Safe to record from any number of threads.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 64;
+
+	// private fields
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(nanos));
+	}
+
+	/**
+	 * @return number of durations recorded
+	 */
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += counts.get(i);
+		return total;
+	}
+
+	/**
+	 * @param fraction which percentile, 0.99 for the 99th
+	 * @return upper bound in nanoseconds of the durations at that percentile, 0 if nothing was recorded
+	 */
+	public long percentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += snapshot[i] = counts.get(i);
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+	}
+
+	////PRIVATE METHODS//////////////////////////////////////////////////////////////////
+
+	private static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+}
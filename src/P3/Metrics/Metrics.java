@@ -0,0 +1,91 @@
+package P3.Metrics;
+
+/**
+ * Where the compression code reports how long every stage takes, and what it processed.
+ *
+ * Measuring is off until a listener is added. While it is off, start() is a single volatile read and stage() returns
+ * right away, without reading the clock or allocating, so the calls can stay in the hot paths:
+ *
+ *   long start = Metrics.start();
+ *   ...the stage...
+ *   Metrics.stage(Stage.ENCODE, start, bytesIn, bytesOut, symbols);
+ */
+public final class Metrics {
+
+	/** What start() returns while measuring is off */
+	public static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private static final MetricsListener[] NONE = {};
+
+	/* Copied on every change, so reporting walks an array nobody modifies */
+	private static volatile MetricsListener[] listeners = NONE;
+
+	private Metrics() {
+	}
+
+	public static synchronized void addListener(MetricsListener listener) {
+		if (listener == null)
+			throw new IllegalArgumentException("Listener cannot be null.");
+		MetricsListener[] updated = new MetricsListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, updated, 0, listeners.length);
+		updated[listeners.length] = listener;
+		listeners = updated;
+	}
+
+	public static synchronized void removeListener(MetricsListener listener) {
+		MetricsListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				MetricsListener[] updated = new MetricsListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated.length == 0 ? NONE : updated;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return whether any listener is registered
+	 */
+	public static boolean enabled() {
+		return listeners.length != 0;
+	}
+
+	/**
+	 * @return the current time to pass to stage(), or NOT_TIMED if nobody is listening
+	 */
+	public static long start() {
+		return listeners.length == 0 ? NOT_TIMED : System.nanoTime();
+	}
+
+	/**
+	 * Reports a finished stage to every listener (see MetricsListener.stageCompleted())
+	 *
+	 * @param start what start() returned before the stage
+	 */
+	public static void stage(Stage stage, long start, long bytesIn, long bytesOut, long symbols) {
+		if (start == NOT_TIMED)
+			return;
+		long nanos = System.nanoTime() - start;
+		for (MetricsListener listener : listeners)
+			listener.stageCompleted(stage, nanos, bytesIn, bytesOut, symbols);
+	}
+
+	/**
+	 * Reports a new canonical code to every listener
+	 */
+	public static void codeBuilt(int symbols, int maxCodeLength) {
+		for (MetricsListener listener : listeners)
+			listener.codeBuilt(symbols, maxCodeLength);
+	}
+
+	/**
+	 * Reports a CodeTableCache lookup to every listener
+	 */
+	public static void cacheLookup(boolean hit) {
+		for (MetricsListener listener : listeners)
+			listener.cacheLookup(hit);
+	}
+
+}
@@ -0,0 +1,38 @@
+package P3.Metrics;
+
+/**
+ * Receives what Metrics measures. Register one with Metrics.addListener(); CompressionStats is the one that keeps totals.
+ *
+ * Listeners are called on the thread that did the work, right after it, so they must be quick and thread safe.
+ */
+public interface MetricsListener {
+
+	/**
+	 * A stage finished
+	 *
+	 * @param stage what was done
+	 * @param nanos how long it took
+	 * @param bytesIn size of what the stage read: input bytes (a char counting as one), or packed bytes when decoding; 0 for trees and codes
+	 * @param bytesOut size of what the stage wrote: packed bytes when encoding, decoded bytes when decoding; 0 for trees and codes
+	 * @param symbols number of symbols processed, or of leaves for trees and codes
+	 */
+	void stageCompleted(Stage stage, long nanos, long bytesIn, long bytesOut, long symbols);
+
+	/**
+	 * A canonical code was built
+	 *
+	 * @param symbols number of symbols with a code
+	 * @param maxCodeLength length of the longest code
+	 */
+	default void codeBuilt(int symbols, int maxCodeLength) {
+	}
+
+	/**
+	 * A CodeTableCache was asked for a code
+	 *
+	 * @param hit whether a cached code was good enough
+	 */
+	default void cacheLookup(boolean hit) {
+	}
+
+}
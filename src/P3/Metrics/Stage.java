@@ -0,0 +1,19 @@
+package P3.Metrics;
+
+/**
+ * The steps of compressing and decompressing, as reported to a MetricsListener
+ */
+public enum Stage {
+	/** Reading the input, load_data() */
+	LOAD_DATA,
+	/** Counting the symbols, compute_fd() and compute_histogram(), or the histogram of a block */
+	COMPUTE_FD,
+	/** Building the Huffman tree, huffman_tree() and huffman_flat_tree() */
+	HUFFMAN_TREE,
+	/** Turning the tree into codes or tables, huffman_code() and the canonical codes */
+	HUFFMAN_CODE,
+	/** Writing the codes of the input, encode() or the codes of a block */
+	ENCODE,
+	/** Reading codes back into symbols, decode() or a block of a stream or container */
+	DECODE
+}
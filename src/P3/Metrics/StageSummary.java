@@ -0,0 +1,76 @@
+package P3.Metrics;
+
+/**
+ * Totals and latencies of one stage, as a snapshot. Latency percentiles are the top of a power of two bucket
+ * (see LatencyHistogram), so they are accurate within a factor of two.
+ */
+public class StageSummary {
+
+	// private fields
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+	private final long p50Nanos;
+	private final long p99Nanos;
+	private final long bytesIn;
+	private final long bytesOut;
+	private final long symbols;
+
+	public StageSummary(long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos, long bytesIn, long bytesOut, long symbols) {
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.p50Nanos = p50Nanos;
+		this.p99Nanos = p99Nanos;
+		this.bytesIn = bytesIn;
+		this.bytesOut = bytesOut;
+		this.symbols = symbols;
+	}
+
+	public long getCount() {
+		return count;
+	}
+	public double getTotalMillis() {
+		return totalNanos / 1e6;
+	}
+	public double getMeanMicros() {
+		return count == 0 ? 0 : totalNanos / 1e3 / count;
+	}
+	public double getP50Micros() {
+		return p50Nanos / 1e3;
+	}
+	public double getP99Micros() {
+		return p99Nanos / 1e3;
+	}
+	public double getMaxMicros() {
+		return maxNanos / 1e3;
+	}
+	public long getBytesIn() {
+		return bytesIn;
+	}
+	public long getBytesOut() {
+		return bytesOut;
+	}
+	public long getSymbols() {
+		return symbols;
+	}
+	/**
+	 * @return symbols processed per second of time spent in the stage
+	 */
+	public double getSymbolsPerSecond() {
+		return totalNanos == 0 ? 0 : symbols * 1e9 / totalNanos;
+	}
+	/**
+	 * @return megabytes read per second of time spent in the stage
+	 */
+	public double getInputMegabytesPerSecond() {
+		return totalNanos == 0 ? 0 : bytesIn * 1e3 / totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d calls, %.3f ms, p50 %.1f us, p99 %.1f us, max %.1f us, %d bytes in, %d bytes out, %.0f symbols/s",
+				count, getTotalMillis(), getP50Micros(), getP99Micros(), getMaxMicros(), bytesIn, bytesOut, getSymbolsPerSecond());
+	}
+
+}